@@ -0,0 +1,71 @@
+package shortestpath;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+//ARA* from weight 3, stopped after a given number of improved paths, so each pass's cost in time shows as the
+//difference between rows. Zero passes runs until the bound reaches 1. Bounds and costs of each pass are
+//checked in AnytimePathFinderTest.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AnytimeBenchmark
+{
+    @Param({"50"})
+    private int size;
+
+    @Param({"2", "6"})
+    private double density;
+
+    @Param({"42"})
+    private long seed;
+
+    @Param({"64"})
+    private int queries;
+
+    @Param({"1", "2", "0"})
+    private int passes;
+
+    private AnytimePathFinder finder;
+    private Heuristic straightLine;
+    private int[] starts;
+    private int[] ends;
+    private int next;
+
+    @Setup
+    public void setUp()
+    {
+        Grid grid = new TerrainGenerator(size, seed).getGrid(density);
+        finder = new AnytimePathFinder(EdgeCosts.compute(grid, Neighbourhood.EIGHT));
+        straightLine = grid::distance;
+
+        Random random = new Random(seed);
+        starts = new int[queries];
+        ends = new int[queries];
+        for(int i = 0; i < queries; i++)
+        {
+            starts[i] = random.nextInt(grid.size());
+            ends[i] = random.nextInt(grid.size());
+        }
+    }
+
+    @Benchmark
+    public PathResult anytime()
+    {
+        int i = next++ % queries;
+        PathQuery query = new PathQuery(starts[i], ends[i], straightLine);
+        query.setWeight(3);
+        int[] seen = {0};
+        query.setCancellationToken(() -> passes > 0 && seen[0] >= passes);
+        return finder.find(query, System.nanoTime() + Long.MAX_VALUE, (result, bound) -> seen[0]++);
+    }
+}
@@ -0,0 +1,157 @@
+package shortestpath;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+//One query per operation, cycling through query pairs drawn from a fixed seed. The batch and parallel
+//searches run on their own ForkJoin pools, whose allocations the gc profiler counts along with the caller's.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SearchBenchmark
+{
+    @Param({"50"})
+    private int size;
+
+    @Param({"2", "6"})
+    private double density;
+
+    @Param({"42"})
+    private long seed;
+
+    @Param({"64"})
+    private int queries;
+
+    private Grid grid;
+    private PathFinder finder;
+    private Landmarks landmarks;
+    private Heuristic straightLine;
+    private SearchState state;
+    private BatchPathFinder batch;
+    private ParallelPathFinder parallel;
+    private IncrementalPathFinder incremental;
+    private int[] patch;                //5x5 points in the middle of the first query's path
+    private float[][] patchMultipliers; //Raised and restored multipliers, applied in turn
+    private int[] starts;
+    private int[] ends;
+    private int next;
+
+    @Setup
+    public void setUp()
+    {
+        grid = new TerrainGenerator(size, seed).getGrid(density);
+        EdgeCosts costs = EdgeCosts.compute(grid, Neighbourhood.EIGHT);
+        finder = new PathFinder(costs);
+        landmarks = Landmarks.select(costs, 8);
+        straightLine = grid::distance;
+        state = new SearchState(grid.size());
+        batch = new BatchPathFinder(finder, landmarks);
+        parallel = new ParallelPathFinder(costs);
+
+        Random random = new Random(seed);
+        starts = new int[queries];
+        ends = new int[queries];
+        for(int i = 0; i < queries; i++)
+        {
+            starts[i] = random.nextInt(grid.size());
+            ends[i] = random.nextInt(grid.size());
+        }
+
+        incremental = new IncrementalPathFinder(costs);
+        int[] path = incremental.find(starts[0], ends[0]).getPath();
+        int middle = path.length == 0 ? starts[0] : path[path.length / 2];
+        patch = new int[25];
+        int k = 0;
+        for(int dc = -2; dc <= 2; dc++)
+        {
+            for(int dr = -2; dr <= 2; dr++)
+            {
+                int col = Math.max(0, Math.min(grid.getWidth() - 1, grid.column(middle) + dc));
+                int row = Math.max(0, Math.min(grid.getHeight() - 1, grid.row(middle) + dr));
+                patch[k++] = grid.index(col, row);
+            }
+        }
+        patchMultipliers = new float[2][patch.length];
+        Arrays.fill(patchMultipliers[0], 4);
+        Arrays.fill(patchMultipliers[1], 1);
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        batch.shutdown();
+        parallel.shutdown();
+    }
+
+    private PathQuery nextQuery(Heuristic heuristic)
+    {
+        int i = next++ % queries;
+        return new PathQuery(starts[i], ends[i], heuristic);
+    }
+
+    @Benchmark
+    public PathResult dijkstra()
+    {
+        return finder.find(nextQuery(null), state);
+    }
+
+    @Benchmark
+    public PathResult bidirectional()
+    {
+        PathQuery query = nextQuery(null);
+        query.setBidirectional(true);
+        return finder.find(query, state);
+    }
+
+    @Benchmark
+    public PathResult straightLine()
+    {
+        return finder.find(nextQuery(straightLine), state);
+    }
+
+    @Benchmark
+    public PathResult landmarks()
+    {
+        return finder.find(nextQuery(landmarks), state);
+    }
+
+    @Benchmark
+    public PathResult weighted()
+    {
+        PathQuery query = nextQuery(straightLine);
+        query.setWeight(2);
+        return finder.find(query, state);
+    }
+
+    //Raises or restores the costs of a patch on the first query's path, then replans that query
+    @Benchmark
+    public PathResult replan()
+    {
+        incremental.setMultipliers(patch, patchMultipliers[next++ % 2]);
+        return incremental.find(starts[0], ends[0]);
+    }
+
+    @Benchmark
+    public PathResult parallel()
+    {
+        return parallel.find(nextQuery(null));
+    }
+
+    //Every query pair at once, so one operation is the whole batch
+    @Benchmark
+    public PathResult[] batch()
+    {
+        return batch.findPaths(starts, ends);
+    }
+}
@@ -0,0 +1,94 @@
+package shortestpath;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+//Noise sampling, terrain generation, grid construction and edge cost precomputation, from a fixed seed.
+//Terrain generation fills its height field on the common ForkJoin pool, whose allocations the gc profiler counts.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class TerrainBenchmark
+{
+    @Param({"50"})
+    private int size;
+
+    @Param({"2", "6"})
+    private double density;
+
+    @Param({"42"})
+    private long seed;
+
+    private Noise noise;
+    private double[] row;
+    private Grid grid;
+
+    @Setup
+    public void setUp()
+    {
+        noise = new Noise(100, seed);
+        row = new double[256];
+        grid = new TerrainGenerator(size, seed).getGrid(density);
+    }
+
+    @Benchmark
+    public double noise256()
+    {
+        double sum = 0;
+        for(int x = 0; x < 256; x++)
+        {
+            for(int y = 0; y < 256; y++)
+            {
+                sum += noise.noise(x / 15.0, y / 15.0);
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double[] noiseFill256()
+    {
+        for(int x = 0; x < 256; x++)
+        {
+            noise.fill(row, 0, row.length, x / 15.0, 0, 0, 1 / 15.0);
+        }
+        return row;
+    }
+
+    @Benchmark
+    public double[] noiseFbm256()
+    {
+        for(int x = 0; x < 256; x++)
+        {
+            noise.fillFbm(row, 0, row.length, x / 15.0, 0, 0, 1 / 15.0, 4, 2, 0.5);
+        }
+        return row;
+    }
+
+    @Benchmark
+    public float[][] terrain()
+    {
+        return new TerrainGenerator(size, seed).getHeightMap();
+    }
+
+    //A new generator each time, as a generator keeps the field it made for the last density
+    @Benchmark
+    public Grid grid()
+    {
+        return new TerrainGenerator(size, seed).getGrid(density);
+    }
+
+    @Benchmark
+    public EdgeCosts edgeCosts()
+    {
+        return EdgeCosts.compute(grid, Neighbourhood.EIGHT);
+    }
+}
@@ -0,0 +1,289 @@
+package shortestpath;
+
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+
+//Any-angle search (Theta*). Like A*, but a point may take its parent's parent as its own whenever the straight
+//line between them over the surface is passable and no more costly, so paths run at any angle instead of
+//along the lattice's eight directions. Straight lines are costed by walking them over the height field,
+//interpolated between grid points, giving their length over the surface.
+//
+//A cost model, as in EdgeCosts.compute, scales that length. The line also steps through the grid points closest
+//to it, each step costed by the model and never below its distance, and the length is multiplied by the total
+//cost of those steps over their total distance. Lines are impassable where any step is, such as one steeper than
+//a TerrainCostModel's maximum slope, so paths follow the same rules as searches over the compiled edge costs.
+//With distance costs the cost is the surface length alone.
+//
+//This gives surface paths close to the shortest possible at a much lower grid density than A* needs for
+//paths that look as straight. Like PathFinder, one instance can serve many threads with a state each, and
+//it is never changed, so a finder for a different cost model is a new instance.
+public class AnyAnglePathFinder
+{
+    private static final int CANCEL_CHECK_INTERVAL = 1024;  //Expansions between polls of the cancellation token
+    private static final int SAMPLES_PER_SPACING = 2;       //Samples taken along a line per grid spacing crossed
+
+    private final Grid grid;
+    private final Neighbourhood neighbourhood;
+    private final CostModel model;      //Must not be changed while the finder is in use
+
+    public AnyAnglePathFinder(Grid grid, Neighbourhood neighbourhood, CostModel model)
+    {
+        this.grid = grid;
+        this.neighbourhood = neighbourhood;
+        this.model = model;
+    }
+
+    public AnyAnglePathFinder(Grid grid, Neighbourhood neighbourhood)
+    {
+        this(grid, neighbourhood, CostModel.DISTANCE);
+    }
+
+    public Grid getGrid()
+    {
+        return grid;
+    }
+
+    public PathResult find(PathQuery query)
+    {
+        return find(query, new SearchState(grid.size()));
+    }
+
+    //Searches with a straight line heuristic, whatever the query's, which is never more than the cost over the
+    //surface. The path returned holds only the points where it turns, and is already smoothed.
+    //Throws CancellationException if the query's cancellation token fires while searching.
+    public PathResult find(PathQuery query, SearchState state)
+    {
+        long begin = System.nanoTime();
+        int start = query.getStart();
+        int end = query.getEnd();
+        CancellationToken cancellation = query.getCancellationToken();
+        int expanded = 0;
+        int touched = 1;
+        int decreaseKeys = 0;
+        int peakOpen = 0;
+
+        state.reset();
+        IndexedMinHeap open = state.getOpen();
+        state.update(start, 0, start);
+        open.add(start, grid.distance(start, end));
+
+        while(!open.isEmpty())
+        {
+            peakOpen = Math.max(peakOpen, open.size());
+            int curr = open.poll();
+            if(curr == end)
+            {
+                break;
+            }
+            state.close(curr);
+            if(++expanded % CANCEL_CHECK_INTERVAL == 0 && cancellation.isCancelled())
+            {
+                throw new CancellationException("Search from " + start + " to " + end + " was cancelled");
+            }
+
+            double currG = state.getG(curr);
+            int parent = state.getParent(curr);
+            double parentG = state.getG(parent);
+            int col = grid.column(curr);
+            int row = grid.row(curr);
+            for(int dir = 0; dir < neighbourhood.size(); dir++)
+            {
+                int adj = neighbourhood.neighbour(grid, col, row, dir);
+                if(adj == -1 || state.isClosed(adj))
+                {
+                    continue;
+                }
+
+                //Straight from the parent if that is passable and cheaper, otherwise by way of curr
+                int adjParent = curr;
+                double adjG = currG + lineCost(curr, adj);
+                if(parent != curr)
+                {
+                    double direct = parentG + lineCost(parent, adj);
+                    if(direct <= adjG)
+                    {
+                        adjG = direct;
+                        adjParent = parent;
+                    }
+                }
+                if(adjG == Double.POSITIVE_INFINITY || adjG >= state.getG(adj))
+                {
+                    continue;
+                }
+
+                if(!state.isTouched(adj))
+                {
+                    touched++;
+                }
+                state.update(adj, adjG, adjParent);
+                double f = adjG + grid.distance(adj, end);
+                if(open.contains(adj))
+                {
+                    open.decreaseKey(adj, f);
+                    decreaseKeys++;
+                }
+                else
+                {
+                    open.add(adj, f);
+                }
+            }
+        }
+
+        SearchStats stats = new SearchStats(expanded, touched, decreaseKeys, peakOpen, System.nanoTime() - begin, -1, -1);
+        if(!state.isTouched(end))
+        {
+            return new PathResult(new int[0], Double.POSITIVE_INFINITY, stats);
+        }
+
+        int length = 1;
+        for(int i = end; i != start; i = state.getParent(i))
+        {
+            length++;
+        }
+        int[] path = new int[length];
+        int curr = end;
+        for(int i = length - 1; i >= 0; i--)
+        {
+            path[i] = curr;
+            curr = state.getParent(curr);
+        }
+
+        int[] smoothed = smooth(path);
+        return new PathResult(smoothed, pathCost(smoothed), stats);
+    }
+
+    //Cost of the straight line from a to b over the surface, or infinity if the cost model does not allow it.
+    //Samples are at most half a spacing apart, so the closest grid points of consecutive samples are neighbours.
+    public double lineCost(int a, int b)
+    {
+        double ax = grid.getX(a);
+        double ay = grid.getY(a);
+        double dx = grid.getX(b) - ax;
+        double dy = grid.getY(b) - ay;
+        double run = Math.sqrt(dx*dx + dy*dy);
+        int steps = Math.max(1, (int)Math.ceil(run / grid.getSpacing() * SAMPLES_PER_SPACING));
+        double stepRun = run / steps;
+
+        boolean distanceOnly = model == CostModel.DISTANCE;
+        double length = 0;
+        double prevZ = grid.getZ(a);
+        int prevPoint = a;
+        double pointsDistance = 0;  //Along the closest grid points so far
+        double pointsCost = 0;
+        for(int i = 1; i <= steps; i++)
+        {
+            double t = (double)i / steps;
+            double x = ax + t * dx;
+            double y = ay + t * dy;
+            double z = i == steps ? grid.getZ(b) : grid.interpolateZ(x, y);
+            double rise = z - prevZ;
+            length += Math.sqrt(stepRun * stepRun + rise * rise);
+            prevZ = z;
+
+            if(!distanceOnly)
+            {
+                int point = i == steps ? b : grid.nearest(x, y);
+                if(point != prevPoint)
+                {
+                    double distance = grid.distance(prevPoint, point);
+                    double cost = model.cost(grid, prevPoint, point, distance);
+                    if(cost == Double.POSITIVE_INFINITY)
+                    {
+                        return Double.POSITIVE_INFINITY;
+                    }
+                    pointsDistance += distance;
+                    pointsCost += Math.max(distance, cost);
+                    prevPoint = point;
+                }
+            }
+        }
+        return pointsDistance == 0 ? length : length * pointsCost / pointsDistance;
+    }
+
+    public double pathCost(int[] path)
+    {
+        double cost = 0;
+        for(int i = 1; i < path.length; i++)
+        {
+            cost += lineCost(path[i - 1], path[i]);
+        }
+        return cost;
+    }
+
+    //Removes turning points where a straight line from an earlier point to a later one is passable and
+    //no more costly than the path between them, trying the farthest later point first
+    public int[] smooth(int[] path)
+    {
+        if(path.length < 3)
+        {
+            return path;
+        }
+
+        //Cost along the path from the start to each point
+        double[] along = new double[path.length];
+        for(int i = 1; i < path.length; i++)
+        {
+            along[i] = along[i - 1] + lineCost(path[i - 1], path[i]);
+        }
+
+        int[] smoothed = new int[path.length];
+        int length = 0;
+        int from = 0;
+        smoothed[length++] = path[0];
+        while(from < path.length - 1)
+        {
+            int to = from + 1;
+            for(int j = path.length - 1; j > from + 1; j--)
+            {
+                if(lineCost(path[from], path[j]) <= along[j] - along[from])
+                {
+                    to = j;
+                    break;
+                }
+            }
+            smoothed[length++] = path[to];
+            from = to;
+        }
+        return Arrays.copyOf(smoothed, length);
+    }
+
+    //Points along the path over the surface, spaced about step apart, as interleaved x, y, z for drawing
+    public double[] trace(int[] path, double step)
+    {
+        if(path.length == 0)
+        {
+            return new double[0];
+        }
+
+        int count = 1;
+        int[] segments = new int[path.length];
+        for(int i = 1; i < path.length; i++)
+        {
+            double dx = grid.getX(path[i]) - grid.getX(path[i - 1]);
+            double dy = grid.getY(path[i]) - grid.getY(path[i - 1]);
+            segments[i] = Math.max(1, (int)Math.ceil(Math.sqrt(dx*dx + dy*dy) / step));
+            count += segments[i];
+        }
+
+        double[] xyz = new double[count * 3];
+        int p = 0;
+        xyz[p++] = grid.getX(path[0]);
+        xyz[p++] = grid.getY(path[0]);
+        xyz[p++] = grid.getZ(path[0]);
+        for(int i = 1; i < path.length; i++)
+        {
+            double ax = grid.getX(path[i - 1]);
+            double ay = grid.getY(path[i - 1]);
+            double dx = grid.getX(path[i]) - ax;
+            double dy = grid.getY(path[i]) - ay;
+            for(int s = 1; s <= segments[i]; s++)
+            {
+                double t = (double)s / segments[i];
+                xyz[p++] = ax + t * dx;
+                xyz[p++] = ay + t * dy;
+                xyz[p++] = s == segments[i] ? grid.getZ(path[i]) : grid.interpolateZ(ax + t * dx, ay + t * dy);
+            }
+        }
+        return xyz;
+    }
+}
@@ -0,0 +1,8 @@
+package shortestpath;
+
+//Receives each improved path found by an anytime search, with a bound on how far it can be from the shortest:
+//the path's cost is at most bound times the shortest path's cost. Called on the searching thread.
+public interface AnytimeListener
+{
+    void improved(PathResult result, double bound);
+}
@@ -0,0 +1,284 @@
+package shortestpath;
+
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+
+//Anytime Repairing A* (ARA*). Starts with a heavily weighted search that finds a path quickly, then lowers
+//the weight step by step, reusing the G values found so far and re-expanding only the points whose costs
+//improved. Each better path is passed to a listener with a bound on its suboptimality, until the bound reaches
+//1, the deadline passes, or the query is cancelled. Like PathFinder, one instance can serve many threads.
+public class AnytimePathFinder
+{
+    private static final int CHECK_INTERVAL = 256;  //Expansions between checks of the deadline and cancellation
+
+    private final EdgeCosts edgeCosts;
+    private double weightStep = 0.5;   //How much the weight drops between improvements
+
+    public AnytimePathFinder(EdgeCosts edgeCosts)
+    {
+        this.edgeCosts = edgeCosts;
+    }
+
+    public EdgeCosts getEdgeCosts()
+    {
+        return edgeCosts;
+    }
+
+    public void setWeightStep(double weightStep)
+    {
+        if(!(weightStep > 0))
+        {
+            throw new IllegalArgumentException("Weight step must be positive: " + weightStep);
+        }
+        this.weightStep = weightStep;
+    }
+
+    //Searches from the query's start to its end, starting at the query's weight. The query must have a heuristic.
+    //Improvements stop at the deadline, as given by System.nanoTime(), or when the query is cancelled, and the
+    //best path found by then is returned. The first path is always searched for in full, so that is only cut
+    //short by cancellation, which then throws CancellationException. The listener may be null.
+    public PathResult find(PathQuery query, long deadline, AnytimeListener listener)
+    {
+        if(query.getHeuristic() == null)
+        {
+            throw new IllegalArgumentException("Anytime searches need a heuristic");
+        }
+        return new Search(query, deadline, listener).run();
+    }
+
+    //One running query
+    private class Search
+    {
+        private final int startIndex;
+        private final int endIndex;
+        private final Heuristic heuristic;
+        private final CancellationToken cancellation;
+        private final long deadline;
+        private final AnytimeListener listener;
+
+        private final double[] g;
+        private final int[] parents;
+        private final int[] closed;     //Iteration in which each point was last expanded
+        private final boolean[] inconsistent;
+        private final IndexedMinHeap open;
+        private int[] incons = new int[64];     //Points whose G improved after they were expanded this iteration
+        private int inconsCount;
+
+        private double weight;
+        private int iteration = 1;
+        private boolean stopped;
+        private long begin;
+
+        private int expanded;
+        private int touched;
+        private int decreaseKeys;
+        private int peakOpen;
+
+        Search(PathQuery query, long deadline, AnytimeListener listener)
+        {
+            startIndex = query.getStart();
+            endIndex = query.getEnd();
+            heuristic = query.getHeuristic();
+            cancellation = query.getCancellationToken();
+            weight = query.getWeight();
+            this.deadline = deadline;
+            this.listener = listener;
+
+            int size = edgeCosts.getGrid().size();
+            g = new double[size];
+            parents = new int[size];
+            closed = new int[size];
+            inconsistent = new boolean[size];
+            open = new IndexedMinHeap(size);
+            Arrays.fill(g, Double.POSITIVE_INFINITY);
+        }
+
+        PathResult run()
+        {
+            begin = System.nanoTime();
+            g[startIndex] = 0;
+            parents[startIndex] = startIndex;
+            touched++;
+            open.add(startIndex, key(startIndex));
+
+            improvePath();
+            PathResult best = result();
+            double bound = bound();
+            publish(best, bound);
+
+            while(bound > 1 && best.isFound() && !outOfTime())
+            {
+                //The bound may already be below the next weight, which would then find nothing new
+                weight = Math.max(1, Math.min(weight - weightStep, bound));
+                iteration++;
+                reopen();
+                improvePath();
+                if(stopped)
+                {
+                    break;  //The path may not be finished, so keep the last one
+                }
+
+                PathResult next = result();
+                double nextBound = bound();
+                if(next.getCost() < best.getCost() || nextBound < bound)
+                {
+                    publish(next, nextBound);
+                }
+                best = next;
+                bound = nextBound;
+            }
+            return best;
+        }
+
+        //Weighted A* until the end's G is no higher than any key in the open list
+        private void improvePath()
+        {
+            while(!open.isEmpty() && g[endIndex] > open.peekPriority())
+            {
+                peakOpen = Math.max(peakOpen, open.size());
+                if(++expanded % CHECK_INTERVAL == 0)
+                {
+                    if(iteration == 1 && cancellation.isCancelled())
+                    {
+                        throw new CancellationException("Search from " + startIndex + " to " + endIndex + " was cancelled");
+                    }
+                    if(iteration > 1 && outOfTime())
+                    {
+                        stopped = true;
+                        return;
+                    }
+                }
+
+                int curr = open.poll();
+                closed[curr] = iteration;
+                double currG = g[curr];
+                for(int dir = 0; dir < edgeCosts.directions(); dir++)
+                {
+                    float cost = edgeCosts.getCost(curr, dir);
+                    if(cost == Float.POSITIVE_INFINITY)
+                    {
+                        continue;
+                    }
+                    int adj = edgeCosts.getNeighbour(curr, dir);
+                    double adjG = currG + cost;
+                    if(adjG >= g[adj])
+                    {
+                        continue;
+                    }
+
+                    if(g[adj] == Double.POSITIVE_INFINITY)
+                    {
+                        touched++;
+                    }
+                    g[adj] = adjG;
+                    parents[adj] = curr;
+                    if(closed[adj] == iteration)
+                    {
+                        //Already expanded at this weight, so it waits for the next iteration
+                        if(!inconsistent[adj])
+                        {
+                            inconsistent[adj] = true;
+                            if(inconsCount == incons.length)
+                            {
+                                incons = Arrays.copyOf(incons, inconsCount * 2);
+                            }
+                            incons[inconsCount++] = adj;
+                        }
+                    }
+                    else if(open.contains(adj))
+                    {
+                        open.decreaseKey(adj, key(adj));
+                        decreaseKeys++;
+                    }
+                    else
+                    {
+                        open.add(adj, key(adj));
+                    }
+                }
+            }
+        }
+
+        private boolean outOfTime()
+        {
+            return System.nanoTime() - deadline > 0 || cancellation.isCancelled();
+        }
+
+        //Moves the inconsistent points into the open list and rekeys everything there for the new weight,
+        //putting the open list back in order once at the end
+        private void reopen()
+        {
+            for(int pos = 0; pos < open.size(); pos++)
+            {
+                int id = open.get(pos);
+                open.set(id, key(id), 0);
+            }
+            for(int i = 0; i < inconsCount; i++)
+            {
+                int id = incons[i];
+                inconsistent[id] = false;
+                open.set(id, key(id), 0);
+            }
+            inconsCount = 0;
+            open.heapify();
+        }
+
+        //The current path costs at most this many times the shortest, as nothing left to expand can lead to
+        //a path cheaper than the lowest unweighted key among the points still open or inconsistent
+        private double bound()
+        {
+            if(g[endIndex] == Double.POSITIVE_INFINITY)
+            {
+                return Double.POSITIVE_INFINITY;
+            }
+
+            double lowest = Double.POSITIVE_INFINITY;
+            for(int pos = 0; pos < open.size(); pos++)
+            {
+                int id = open.get(pos);
+                lowest = Math.min(lowest, g[id] + heuristic.estimate(id, endIndex));
+            }
+            for(int i = 0; i < inconsCount; i++)
+            {
+                int id = incons[i];
+                lowest = Math.min(lowest, g[id] + heuristic.estimate(id, endIndex));
+            }
+            return Math.max(1, Math.min(weight, g[endIndex] / lowest));
+        }
+
+        private double key(int id)
+        {
+            return g[id] + weight * heuristic.estimate(id, endIndex);
+        }
+
+        private PathResult result()
+        {
+            SearchStats stats = new SearchStats(expanded, touched, decreaseKeys, peakOpen, System.nanoTime() - begin, -1, -1);
+            if(g[endIndex] == Double.POSITIVE_INFINITY)
+            {
+                return new PathResult(new int[0], Double.POSITIVE_INFINITY, stats);
+            }
+
+            int length = 1;
+            for(int i = endIndex; i != startIndex; i = parents[i])
+            {
+                length++;
+            }
+            int[] path = new int[length];
+            int curr = endIndex;
+            for(int i = length - 1; i >= 0; i--)
+            {
+                path[i] = curr;
+                curr = parents[curr];
+            }
+            return new PathResult(path, g[endIndex], stats);
+        }
+
+        private void publish(PathResult result, double bound)
+        {
+            if(listener != null && result.isFound())
+            {
+                listener.improved(result, bound);
+            }
+        }
+    }
+}
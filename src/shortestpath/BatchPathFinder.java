@@ -0,0 +1,91 @@
+package shortestpath;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+//Runs many path queries against one terrain in parallel. The grid, edge costs and heuristic are only read,
+//so they are shared by every worker, and each worker thread reuses its own search state between queries.
+public class BatchPathFinder
+{
+    private static final int SPLIT_THRESHOLD = 4;   //Queries handled by one task without splitting further
+
+    private final PathFinder finder;
+    private final Heuristic heuristic;  //Null searches without heuristics
+    private final ForkJoinPool pool;
+    private final ThreadLocal<SearchState> states;
+
+    public BatchPathFinder(PathFinder finder, Heuristic heuristic, int parallelism)
+    {
+        this.finder = finder;
+        this.heuristic = heuristic;
+
+        int size = finder.getGrid().size();
+        pool = new ForkJoinPool(parallelism);
+        states = ThreadLocal.withInitial(() -> new SearchState(size));
+    }
+
+    public BatchPathFinder(PathFinder finder, Heuristic heuristic)
+    {
+        this(finder, heuristic, Runtime.getRuntime().availableProcessors());
+    }
+
+    //Finds the path from starts[i] to ends[i] for every i, blocking until all are done
+    public PathResult[] findPaths(int[] starts, int[] ends)
+    {
+        if(starts.length != ends.length)
+        {
+            throw new IllegalArgumentException("Every start needs an end: " + starts.length + " != " + ends.length);
+        }
+
+        PathResult[] results = new PathResult[starts.length];
+        pool.invoke(new QueryRange(starts, ends, results, 0, starts.length));
+        return results;
+    }
+
+    public PathResult findPath(int start, int end)
+    {
+        return finder.find(new PathQuery(start, end, heuristic), states.get());
+    }
+
+    public void shutdown()
+    {
+        pool.shutdown();
+    }
+
+    private class QueryRange extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] starts;
+        private final int[] ends;
+        private final PathResult[] results;
+        private final int from;
+        private final int to;
+
+        QueryRange(int[] starts, int[] ends, PathResult[] results, int from, int to)
+        {
+            this.starts = starts;
+            this.ends = ends;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if(to - from <= SPLIT_THRESHOLD)
+            {
+                for(int i = from; i < to; i++)
+                {
+                    results[i] = findPath(starts[i], ends[i]);
+                }
+                return;
+            }
+
+            int mid = (from + to) >>> 1;
+            invokeAll(new QueryRange(starts, ends, results, from, mid),
+                      new QueryRange(starts, ends, results, mid, to));
+        }
+    }
+}
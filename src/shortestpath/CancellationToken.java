@@ -0,0 +1,9 @@
+package shortestpath;
+
+//Polled by long running searches, which stop with a CancellationException once it reports true
+public interface CancellationToken
+{
+    CancellationToken NONE = () -> false;
+
+    boolean isCancelled();
+}
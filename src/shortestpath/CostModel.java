@@ -0,0 +1,13 @@
+package shortestpath;
+
+//Cost of moving between two neighbouring grid points, compiled once into EdgeCosts so searches only read a
+//table. Costs may differ by direction and may be infinite for moves that are not allowed, which are then never
+//searched. Costs below the straight line distance are raised to it, so straight line and landmark heuristics,
+//with landmarks selected over distance costs, never overestimate.
+public interface CostModel
+{
+    //Straight line distance between the points
+    CostModel DISTANCE = (grid, from, to, distance) -> distance;
+
+    double cost(Grid grid, int from, int to, double distance);
+}
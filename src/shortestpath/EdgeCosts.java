@@ -0,0 +1,96 @@
+package shortestpath;
+
+//Precomputed cost of every edge in a grid, stored per node and direction.
+//Moves that leave the grid have an infinite cost, so no bounds checks are needed when searching.
+public class EdgeCosts
+{
+    private final Grid grid;
+    private final Neighbourhood neighbourhood;
+    private final int directions;
+    private final int[] offsets;    //Index offset of each direction
+    private final float[] costs;
+
+    public EdgeCosts(Grid grid, Neighbourhood neighbourhood, float[] costs)
+    {
+        this.grid = grid;
+        this.neighbourhood = neighbourhood;
+        this.directions = neighbourhood.size();
+        this.costs = costs;
+
+        offsets = new int[directions];
+        for(int dir = 0; dir < directions; dir++)
+        {
+            offsets[dir] = neighbourhood.indexOffset(grid, dir);
+        }
+    }
+
+    //Costs are the straight line distances between neighbouring points
+    public static EdgeCosts compute(Grid grid, Neighbourhood neighbourhood)
+    {
+        return compute(grid, neighbourhood, CostModel.DISTANCE);
+    }
+
+    //Costs given by the model, raised to at least the straight line distance
+    public static EdgeCosts compute(Grid grid, Neighbourhood neighbourhood, CostModel model)
+    {
+        int directions = neighbourhood.size();
+        float[] costs = new float[grid.size() * directions];
+        for(int col = 0; col < grid.getWidth(); col++)
+        {
+            for(int row = 0; row < grid.getHeight(); row++)
+            {
+                int node = grid.index(col, row);
+                for(int dir = 0; dir < directions; dir++)
+                {
+                    int adj = neighbourhood.neighbour(grid, col, row, dir);
+                    if(adj == -1)
+                    {
+                        costs[node * directions + dir] = Float.POSITIVE_INFINITY;
+                        continue;
+                    }
+                    double distance = grid.distance(node, adj);
+                    costs[node * directions + dir] = (float)Math.max(distance, model.cost(grid, node, adj, distance));
+                }
+            }
+        }
+
+        return new EdgeCosts(grid, neighbourhood, costs);
+    }
+
+    public Grid getGrid()
+    {
+        return grid;
+    }
+
+    public Neighbourhood getNeighbourhood()
+    {
+        return neighbourhood;
+    }
+
+    public int directions()
+    {
+        return directions;
+    }
+
+    public float getCost(int node, int dir)
+    {
+        return costs[node * directions + dir];
+    }
+
+    //Cost of the edge from the neighbour in the given direction back to node.
+    //Only valid when that neighbour exists.
+    public float getReverseCost(int node, int dir)
+    {
+        return costs[(node + offsets[dir]) * directions + neighbourhood.opposite(dir)];
+    }
+
+    public int getNeighbour(int node, int dir)
+    {
+        return node + offsets[dir];
+    }
+
+    public float[] getCosts()
+    {
+        return costs;
+    }
+}
@@ -0,0 +1,220 @@
+package shortestpath;
+
+//Discretized terrain points stored as primitive coordinate arrays.
+//Points are laid out column by column, so index = column * height + row.
+public class Grid
+{
+    private final int width;        //Number of points along x
+    private final int height;       //Number of points along y
+    private final double spacing;   //Distance between neighbouring points along x and y
+
+    private final double[] x;
+    private final double[] y;
+    private final double[] z;
+
+    private volatile long version;  //Bumped whenever heights change, so results cached for old heights can be dropped
+
+    public Grid(int width, int height, double spacing)
+    {
+        this(width, height, spacing, new double[width * height]);
+    }
+
+    //Uses the given heights, laid out column by column, without copying them
+    public Grid(int width, int height, double spacing, double[] z)
+    {
+        this.width = width;
+        this.height = height;
+        this.spacing = spacing;
+        this.z = z;
+
+        x = new double[width * height];
+        y = new double[width * height];
+
+        for(int col = 0; col < width; col++)
+        {
+            for(int row = 0; row < height; row++)
+            {
+                int i = col * height + row;
+                x[i] = col * spacing;
+                y[i] = row * spacing;
+            }
+        }
+    }
+
+    public int size()
+    {
+        return x.length;
+    }
+
+    public int getWidth()
+    {
+        return width;
+    }
+
+    public int getHeight()
+    {
+        return height;
+    }
+
+    public double getSpacing()
+    {
+        return spacing;
+    }
+
+    public int index(int column, int row)
+    {
+        return column * height + row;
+    }
+
+    public int column(int index)
+    {
+        return index / height;
+    }
+
+    public int row(int index)
+    {
+        return index % height;
+    }
+
+    public double getX(int index)
+    {
+        return x[index];
+    }
+
+    public double getY(int index)
+    {
+        return y[index];
+    }
+
+    public double getZ(int index)
+    {
+        return z[index];
+    }
+
+    public void setZ(int index, double value)
+    {
+        z[index] = value;
+        version++;
+    }
+
+    public long getVersion()
+    {
+        return version;
+    }
+
+    //Bumps the version after heights were written directly into getHeights(), or costs derived from them changed
+    public void markChanged()
+    {
+        version++;
+    }
+
+    //Heights of every point, column by column. This is the grid's own array, not a copy.
+    public double[] getHeights()
+    {
+        return z;
+    }
+
+    //Straight line distance between two points
+    public double distance(int a, int b)
+    {
+        double dx = x[a] - x[b];
+        double dy = y[a] - y[b];
+        double dz = z[a] - z[b];
+        return Math.sqrt(dx*dx + dy*dy + dz*dz);
+    }
+
+    //Height of the surface at (px, py), interpolated bilinearly between the four surrounding points.
+    //Positions outside the grid take the height at its edge.
+    public double interpolateZ(double px, double py)
+    {
+        double cx = Math.max(0, Math.min(width - 1, px / spacing));
+        double cy = Math.max(0, Math.min(height - 1, py / spacing));
+        int col = Math.min((int)cx, Math.max(0, width - 2));
+        int row = Math.min((int)cy, Math.max(0, height - 2));
+        double fx = cx - col;
+        double fy = cy - row;
+
+        int i = index(col, row);
+        int right = col + 1 < width ? height : 0;      //Index step to the next column, if there is one
+        int up = row + 1 < height ? 1 : 0;
+        double bottom = z[i] + fx * (z[i + right] - z[i]);
+        double top = z[i + up] + fx * (z[i + right + up] - z[i + up]);
+        return bottom + fy * (top - bottom);
+    }
+
+    //Index of the point closest to (px, py) in x and y, found from the grid's spacing in O(1)
+    public int nearest(double px, double py)
+    {
+        int col = Math.max(0, Math.min(width - 1, (int)Math.round(px / spacing)));
+        int row = Math.max(0, Math.min(height - 1, (int)Math.round(py / spacing)));
+        return index(col, row);
+    }
+
+    //Index of the point closest to (px, py, pz) in 3D. Starts from the closest point in x and y and checks
+    //rings of points around it, stopping once no further ring can be closer than the best found.
+    public int nearest(double px, double py, double pz)
+    {
+        double cx = px / spacing;
+        double cy = py / spacing;
+        int col = Math.max(0, Math.min(width - 1, (int)Math.round(cx)));
+        int row = Math.max(0, Math.min(height - 1, (int)Math.round(cy)));
+        double offset = Math.max(Math.abs(col - cx), Math.abs(row - cy));  //Query's distance from the centre, in points
+
+        int best = index(col, row);
+        double bestDist = distanceSquared(best, px, py, pz);
+        int maxRing = Math.max(width, height);
+        for(int r = 1; r <= maxRing; r++)
+        {
+            double bound = (r - offset) * spacing;    //No point in this ring is closer in x and y alone
+            if(bound > 0 && bound * bound >= bestDist)
+            {
+                break;
+            }
+
+            for(int c = col - r; c <= col + r; c++)
+            {
+                if(c < 0 || c >= width)
+                {
+                    continue;
+                }
+                //Whole column on the ring's left and right edges, only its ends otherwise
+                int step = (c == col - r || c == col + r) ? 1 : 2 * r;
+                for(int rr = row - r; rr <= row + r; rr += step)
+                {
+                    if(rr < 0 || rr >= height)
+                    {
+                        continue;
+                    }
+                    int i = index(c, rr);
+                    double d = distanceSquared(i, px, py, pz);
+                    if(d < bestDist)
+                    {
+                        bestDist = d;
+                        best = i;
+                    }
+                }
+            }
+        }
+
+        return best;
+    }
+
+    //Snaps many points, given as interleaved x, y, z coordinates, to their closest grid points
+    public int[] nearestAll(double[] xyz)
+    {
+        int[] indices = new int[xyz.length / 3];
+        for(int i = 0; i < indices.length; i++)
+        {
+            indices[i] = nearest(xyz[i * 3], xyz[i * 3 + 1], xyz[i * 3 + 2]);
+        }
+        return indices;
+    }
+
+    private double distanceSquared(int i, double px, double py, double pz)
+    {
+        double dx = x[i] - px;
+        double dy = y[i] - py;
+        double dz = z[i] - pz;
+        return dx*dx + dy*dy + dz*dz;
+    }
+}
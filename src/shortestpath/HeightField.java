@@ -0,0 +1,125 @@
+package shortestpath;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+//Heights sampled on a regular lattice, stored column by column like Grid so a grid can use them directly
+public class HeightField
+{
+    private static final int BAND_COLUMNS = 16;    //Columns filled by one task without splitting further
+    private static final double LACUNARITY = 2;     //Frequency multiplier between noise octaves
+    private static final double GAIN = 0.5;         //Amplitude multiplier between noise octaves
+
+    private final int columns;
+    private final int rows;
+    private final double spacing;
+    private final double[] heights;
+
+    public HeightField(int columns, int rows, double spacing, double[] heights)
+    {
+        this.columns = columns;
+        this.rows = rows;
+        this.spacing = spacing;
+        this.heights = heights;
+    }
+
+    //Samples mult * fbm(x / divisor, y / divisor) at every lattice point, filling bands of columns in parallel.
+    //Each point only depends on its coordinates, so the result is the same however the work is split.
+    public static HeightField generate(Noise noise, int columns, int rows, double spacing, double divisor, double mult, int octaves)
+    {
+        return generate(noise, 0, 0, columns, rows, spacing, divisor, mult, octaves);
+    }
+
+    //Generates the part of a larger field starting at (firstColumn, firstRow). Heights match, to within rounding,
+    //those the same points would get in a field generated from (0, 0), so neighbouring parts join up seamlessly.
+    public static HeightField generate(Noise noise, int firstColumn, int firstRow, int columns, int rows, double spacing,
+                                       double divisor, double mult, int octaves)
+    {
+        double[] heights = new double[columns * rows];
+        ForkJoinPool.commonPool().invoke(new Band(noise, heights, firstColumn, firstRow, rows, spacing, divisor, mult, octaves, 0, columns));
+        return new HeightField(columns, rows, spacing, heights);
+    }
+
+    public int getColumns()
+    {
+        return columns;
+    }
+
+    public int getRows()
+    {
+        return rows;
+    }
+
+    public double getSpacing()
+    {
+        return spacing;
+    }
+
+    public double get(int column, int row)
+    {
+        return heights[column * rows + row];
+    }
+
+    public double[] getHeights()
+    {
+        return heights;
+    }
+
+    private static class Band extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final Noise noise;
+        private final double[] heights;
+        private final int firstColumn;
+        private final int firstRow;
+        private final int rows;
+        private final double spacing;
+        private final double divisor;
+        private final double mult;
+        private final int octaves;
+        private final int from;
+        private final int to;
+
+        Band(Noise noise, double[] heights, int firstColumn, int firstRow, int rows, double spacing, double divisor,
+             double mult, int octaves, int from, int to)
+        {
+            this.noise = noise;
+            this.heights = heights;
+            this.firstColumn = firstColumn;
+            this.firstRow = firstRow;
+            this.rows = rows;
+            this.spacing = spacing;
+            this.divisor = divisor;
+            this.mult = mult;
+            this.octaves = octaves;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if(to - from <= BAND_COLUMNS)
+            {
+                double step = spacing / divisor;
+                for(int col = from; col < to; col++)
+                {
+                    //Each column is contiguous, so it is sampled as one run
+                    int base = col * rows;
+                    noise.fillFbm(heights, base, rows, (double)(firstColumn + col) * step, firstRow * step, 0, step,
+                                  octaves, LACUNARITY, GAIN);
+                    for(int row = 0; row < rows; row++)
+                    {
+                        heights[base + row] *= mult;
+                    }
+                }
+                return;
+            }
+
+            int mid = (from + to) >>> 1;
+            invokeAll(new Band(noise, heights, firstColumn, firstRow, rows, spacing, divisor, mult, octaves, from, mid),
+                      new Band(noise, heights, firstColumn, firstRow, rows, spacing, divisor, mult, octaves, mid, to));
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package shortestpath;
+
+//Lower bound on the cost of travelling between two grid points
+public interface Heuristic
+{
+    double estimate(int from, int to);
+}
@@ -0,0 +1,598 @@
+package shortestpath;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.NoSuchElementException;
+
+//Hierarchical pathfinding (HPA*). The grid is split into square clusters, and the points where paths can
+//cross between neighbouring clusters become entrances of a much smaller abstract graph. Costs between the
+//entrances of each cluster are precomputed, so a query only searches the abstract graph and then refines
+//each abstract edge into grid points when it is needed. Paths are close to, but not always, the shortest.
+//Entrances are sparse, and a short path between neighbouring clusters could detour through one far from the
+//straight crossing, several times its length, so those queries also search the area the two clusters span.
+//Paths between clusters further apart came out up to a third longer than the shortest on generated terrain.
+//Entrances are placed for every part of a cluster that paths can cross its border from, so impassable edges
+//never hide a path, and a query the abstract graph cannot answer falls back to searching the whole grid.
+//Not thread safe: queries and refinement share one search state.
+public class HierarchicalPathFinder
+{
+    private static final int LONG_RUN = 6;  //Groups of crossings at least this long get an entrance at each end
+
+    private final Grid grid;
+    private final EdgeCosts costs;
+    private final Neighbourhood neighbourhood;
+    private final int clusterSize;
+    private final int clustersX;
+    private final int clustersY;
+
+    private final SearchState state;
+    private final PathFinder flat;          //Searches the whole grid when the abstract graph finds no path
+
+    //Abstract graph, entrances are numbered 0 to entrances.length - 1
+    private int[] entrances;                //Grid index of each entrance
+    private int[] abstractIndex;            //Entrance number of each grid point, -1 if not an entrance
+    private int[][] clusterEntrances;       //Entrance numbers in each cluster
+    private int[][] edgeTargets;            //Entrance numbers adjacent to each entrance
+    private double[][] edgeWeights;
+
+    public HierarchicalPathFinder(EdgeCosts costs, int clusterSize)
+    {
+        this.grid = costs.getGrid();
+        this.costs = costs;
+        this.neighbourhood = costs.getNeighbourhood();
+        this.clusterSize = clusterSize;
+
+        clustersX = (grid.getWidth() + clusterSize - 1) / clusterSize;
+        clustersY = (grid.getHeight() + clusterSize - 1) / clusterSize;
+
+        state = new SearchState(grid.size());
+        flat = new PathFinder(costs);
+
+        buildAbstractGraph();
+    }
+
+    public int cluster(int node)
+    {
+        return (grid.column(node) / clusterSize) * clustersY + grid.row(node) / clusterSize;
+    }
+
+    public int getEntranceCount()
+    {
+        return entrances.length;
+    }
+
+    private void buildAbstractGraph()
+    {
+        ArrayList<Integer> found = new ArrayList<>();
+        ArrayList<int[]> crossings = findCrossings();    //Pairs of grid points joined across a cluster border
+
+        abstractIndex = new int[grid.size()];
+        Arrays.fill(abstractIndex, -1);
+        for(int[] crossing : crossings)
+        {
+            for(int node : crossing)
+            {
+                if(abstractIndex[node] == -1)
+                {
+                    abstractIndex[node] = found.size();
+                    found.add(node);
+                }
+            }
+        }
+
+        entrances = new int[found.size()];
+        for(int i = 0; i < entrances.length; i++)
+        {
+            entrances[i] = found.get(i);
+        }
+
+        //Group entrances by cluster
+        ArrayList<ArrayList<Integer>> byCluster = new ArrayList<>();
+        for(int c = 0; c < clustersX * clustersY; c++)
+        {
+            byCluster.add(new ArrayList<>());
+        }
+        for(int i = 0; i < entrances.length; i++)
+        {
+            byCluster.get(cluster(entrances[i])).add(i);
+        }
+        clusterEntrances = new int[byCluster.size()][];
+        for(int c = 0; c < byCluster.size(); c++)
+        {
+            clusterEntrances[c] = toArray(byCluster.get(c));
+        }
+
+        ArrayList<ArrayList<Integer>> targets = new ArrayList<>();
+        ArrayList<ArrayList<Double>> weights = new ArrayList<>();
+        for(int i = 0; i < entrances.length; i++)
+        {
+            targets.add(new ArrayList<>());
+            weights.add(new ArrayList<>());
+        }
+
+        //Edges across borders, in whichever directions they can be crossed
+        for(int[] crossing : crossings)
+        {
+            int a = abstractIndex[crossing[0]];
+            int b = abstractIndex[crossing[1]];
+            double there = edgeCost(crossing[0], crossing[1]);
+            double back = edgeCost(crossing[1], crossing[0]);
+            if(there != Double.POSITIVE_INFINITY)
+            {
+                targets.get(a).add(b);
+                weights.get(a).add(there);
+            }
+            if(back != Double.POSITIVE_INFINITY)
+            {
+                targets.get(b).add(a);
+                weights.get(b).add(back);
+            }
+        }
+
+        //Edges between entrances of the same cluster, using the cheapest route that stays inside it
+        for(int c = 0; c < clusterEntrances.length; c++)
+        {
+            for(int a : clusterEntrances[c])
+            {
+                searchCluster(entrances[a], -1, c, false);
+                for(int b : clusterEntrances[c])
+                {
+                    if(a != b && state.isTouched(entrances[b]))
+                    {
+                        targets.get(a).add(b);
+                        weights.get(a).add(state.getG(entrances[b]));
+                    }
+                }
+            }
+        }
+
+        edgeTargets = new int[entrances.length][];
+        edgeWeights = new double[entrances.length][];
+        for(int i = 0; i < entrances.length; i++)
+        {
+            edgeTargets[i] = toArray(targets.get(i));
+            edgeWeights[i] = new double[weights.get(i).size()];
+            for(int k = 0; k < edgeWeights[i].length; k++)
+            {
+                edgeWeights[i][k] = weights.get(i).get(k);
+            }
+        }
+    }
+
+    //Picks the edges between clusters that become entrance pairs. Every edge leaving a cluster, diagonals
+    //included, is grouped by the parts of the two clusters it joins and the directions it can be crossed in,
+    //so a path through any of them can go through an entrance pair of the same group instead. Each group gets
+    //a pair in its middle, and long groups one at each end as well.
+    private ArrayList<int[]> findCrossings()
+    {
+        int[] parts = clusterParts();
+        LinkedHashMap<Long, ArrayList<int[]>> groups = new LinkedHashMap<>();
+        for(int col = 0; col < grid.getWidth(); col++)
+        {
+            for(int row = 0; row < grid.getHeight(); row++)
+            {
+                int node = grid.index(col, row);
+                for(int dir = 0; dir < neighbourhood.size(); dir++)
+                {
+                    int adj = neighbourhood.neighbour(grid, col, row, dir);
+                    if(adj == -1 || adj < node || cluster(adj) == cluster(node))
+                    {
+                        continue;   //Each crossing is seen from its lower point only
+                    }
+
+                    boolean there = costs.getCost(node, dir) != Float.POSITIVE_INFINITY;
+                    boolean back = costs.getReverseCost(node, dir) != Float.POSITIVE_INFINITY;
+                    if(!there && !back)
+                    {
+                        continue;
+                    }
+                    long key = (long)parts[node] << 32 | (long)parts[adj] << 2 | (there ? 2 : 0) | (back ? 1 : 0);
+                    groups.computeIfAbsent(key, k -> new ArrayList<>()).add(new int[]{node, adj});
+                }
+            }
+        }
+
+        ArrayList<int[]> crossings = new ArrayList<>();
+        for(ArrayList<int[]> group : groups.values())
+        {
+            int last = group.size() - 1;
+            crossings.add(group.get(last / 2));
+            if(group.size() >= LONG_RUN)
+            {
+                crossings.add(group.get(0));
+                crossings.add(group.get(last));
+            }
+        }
+        return crossings;
+    }
+
+    //Numbers the parts of each cluster whose points can reach each other both ways without leaving it,
+    //giving each point the number of its part
+    private int[] clusterParts()
+    {
+        int[] parts = new int[grid.size()];
+        Arrays.fill(parts, -1);
+        int[] stack = new int[grid.size()];
+        int count = 0;
+        for(int seed = 0; seed < parts.length; seed++)
+        {
+            if(parts[seed] != -1)
+            {
+                continue;
+            }
+
+            int top = 0;
+            stack[top++] = seed;
+            parts[seed] = count;
+            while(top > 0)
+            {
+                int curr = stack[--top];
+                int col = grid.column(curr);
+                int row = grid.row(curr);
+                for(int dir = 0; dir < neighbourhood.size(); dir++)
+                {
+                    int adj = neighbourhood.neighbour(grid, col, row, dir);
+                    if(adj == -1 || parts[adj] != -1 || cluster(adj) != cluster(curr)
+                            || costs.getCost(curr, dir) == Float.POSITIVE_INFINITY
+                            || costs.getReverseCost(curr, dir) == Float.POSITIVE_INFINITY)
+                    {
+                        continue;
+                    }
+                    parts[adj] = count;
+                    stack[top++] = adj;
+                }
+            }
+            count++;
+        }
+        return parts;
+    }
+
+    //Cost of the direct edge between two neighbouring points
+    private double edgeCost(int from, int to)
+    {
+        for(int dir = 0; dir < costs.directions(); dir++)
+        {
+            if(costs.getCost(from, dir) != Float.POSITIVE_INFINITY && costs.getNeighbour(from, dir) == to)
+            {
+                return costs.getCost(from, dir);
+            }
+        }
+        return Double.POSITIVE_INFINITY;
+    }
+
+    //Searches from source without leaving the given cluster. With a target it is A* and stops there,
+    //otherwise it is Dijkstra over the whole cluster. Reverse follows edges backwards, giving costs to source.
+    private void searchCluster(int source, int target, int cluster, boolean reverse)
+    {
+        searchArea(source, target, cluster, cluster, reverse);
+    }
+
+    //Searches as searchCluster does, within the smallest block of clusters holding both given ones
+    private void searchArea(int source, int target, int clusterA, int clusterB, boolean reverse)
+    {
+        int col0 = Math.min(clusterA / clustersY, clusterB / clustersY) * clusterSize;
+        int row0 = Math.min(clusterA % clustersY, clusterB % clustersY) * clusterSize;
+        int col1 = Math.min((Math.max(clusterA / clustersY, clusterB / clustersY) + 1) * clusterSize, grid.getWidth());
+        int row1 = Math.min((Math.max(clusterA % clustersY, clusterB % clustersY) + 1) * clusterSize, grid.getHeight());
+
+        state.reset();
+        IndexedMinHeap open = state.getOpen();
+        state.update(source, 0, source);
+        open.add(source, 0);
+
+        while(!open.isEmpty())
+        {
+            int curr = open.poll();
+            if(curr == target)
+            {
+                return;
+            }
+            state.close(curr);
+
+            int col = grid.column(curr);
+            int row = grid.row(curr);
+            double currG = state.getG(curr);
+            for(int dir = 0; dir < neighbourhood.size(); dir++)
+            {
+                int adjCol = col + neighbourhood.columnOffset(dir);
+                int adjRow = row + neighbourhood.rowOffset(dir);
+                if(adjCol < col0 || adjCol >= col1 || adjRow < row0 || adjRow >= row1)
+                {
+                    continue;
+                }
+
+                //The neighbour is inside the area, so the reverse cost is valid too
+                float cost = reverse ? costs.getReverseCost(curr, dir) : costs.getCost(curr, dir);
+                if(cost == Float.POSITIVE_INFINITY)
+                {
+                    continue;   //Impassable
+                }
+
+                int adj = costs.getNeighbour(curr, dir);
+                double adjG = currG + cost;
+                if(state.isClosed(adj) || adjG >= state.getG(adj))
+                {
+                    continue;
+                }
+
+                double adjF = target == -1 ? adjG : adjG + grid.distance(adj, target);
+                if(open.contains(adj))
+                {
+                    open.decreaseKey(adj, adjF);
+                }
+                else
+                {
+                    open.add(adj, adjF);
+                }
+                state.update(adj, adjG, curr);
+            }
+        }
+    }
+
+    //Finds the abstract path between two grid points. Nothing is refined until the path is iterated.
+    public HierarchicalPath findPath(int start, int end)
+    {
+        int n = entrances.length;
+        int startNode = n;
+        int endNode = n + 1;
+        int startCluster = cluster(start);
+        int endCluster = cluster(end);
+
+        if(start == end)
+        {
+            return new HierarchicalPath(new int[]{start}, 0, true);
+        }
+
+        //Connect the start and end to the entrances of their clusters
+        int[] startEntrances = clusterEntrances[startCluster];
+        double[] startWeights = new double[startEntrances.length];
+        searchCluster(start, -1, startCluster, false);
+        for(int k = 0; k < startEntrances.length; k++)
+        {
+            startWeights[k] = state.getG(entrances[startEntrances[k]]);
+        }
+        double direct = state.getG(end);   //Route that never leaves the cluster, infinite if in another cluster
+
+        int[] endEntrances = clusterEntrances[endCluster];
+        double[] toEnd = new double[n];
+        Arrays.fill(toEnd, Double.POSITIVE_INFINITY);
+        searchCluster(end, -1, endCluster, true);
+        for(int e : endEntrances)
+        {
+            toEnd[e] = state.getG(entrances[e]);
+        }
+
+        //A* over the abstract graph
+        IndexedMinHeap open = new IndexedMinHeap(n + 2);
+        double[] g = new double[n + 2];
+        int[] parents = new int[n + 2];
+        boolean[] closed = new boolean[n + 2];
+        Arrays.fill(g, Double.POSITIVE_INFINITY);
+
+        g[startNode] = 0;
+        open.add(startNode, 0);
+        if(direct != Double.POSITIVE_INFINITY)
+        {
+            g[endNode] = direct;
+            parents[endNode] = startNode;
+            open.add(endNode, direct);
+        }
+
+        while(!open.isEmpty())
+        {
+            int curr = open.poll();
+            if(curr == endNode)
+            {
+                break;
+            }
+            closed[curr] = true;
+
+            int[] adjacents = curr == startNode ? startEntrances : edgeTargets[curr];
+            double[] weights = curr == startNode ? startWeights : edgeWeights[curr];
+            for(int k = 0; k <= adjacents.length; k++)
+            {
+                int adj;
+                double weight;
+                if(k < adjacents.length)
+                {
+                    adj = adjacents[k];
+                    weight = weights[k];
+                }
+                else if(curr != startNode && toEnd[curr] != Double.POSITIVE_INFINITY)
+                {
+                    adj = endNode;
+                    weight = toEnd[curr];
+                }
+                else
+                {
+                    continue;
+                }
+
+                double adjG = g[curr] + weight;
+                if(closed[adj] || adjG >= g[adj])
+                {
+                    continue;
+                }
+
+                double adjF = adjG + (adj == endNode ? 0 : grid.distance(entrances[adj], end));
+                if(open.contains(adj))
+                {
+                    open.decreaseKey(adj, adjF);
+                }
+                else
+                {
+                    open.add(adj, adjF);
+                }
+                g[adj] = adjG;
+                parents[adj] = curr;
+            }
+        }
+
+        if(g[endNode] == Double.POSITIVE_INFINITY)
+        {
+            //Entrances cover every way between clusters, but a search of the whole grid settles it for certain
+            PathResult result = flat.find(new PathQuery(start, end, grid::distance), state);
+            return new HierarchicalPath(result.getPath(), result.getCost(), true);
+        }
+
+        //Neighbouring clusters may share no entrance near the straight crossing, so their whole area is searched
+        //too, and the cheaper of the two paths is kept
+        if(Math.abs(startCluster / clustersY - endCluster / clustersY) <= 1
+                && Math.abs(startCluster % clustersY - endCluster % clustersY) <= 1)
+        {
+            searchArea(start, end, startCluster, endCluster, false);
+            if(state.getG(end) < g[endNode])
+            {
+                int[] segment = trace(start, end);
+                int[] path = new int[segment.length + 1];
+                path[0] = start;
+                System.arraycopy(segment, 0, path, 1, segment.length);
+                return new HierarchicalPath(path, state.getG(end), true);
+            }
+        }
+
+        int length = 1;
+        for(int i = endNode; i != startNode; i = parents[i])
+        {
+            length++;
+        }
+        int[] waypoints = new int[length];
+        int curr = endNode;
+        for(int i = length - 1; i >= 0; i--)
+        {
+            waypoints[i] = curr == startNode ? start : curr == endNode ? end : entrances[curr];
+            curr = parents[curr];
+        }
+
+        return new HierarchicalPath(waypoints, g[endNode], false);
+    }
+
+    //Grid points after from up to and including to, along the cheapest route between two consecutive waypoints
+    private int[] refine(int from, int to)
+    {
+        int cluster = cluster(from);
+        if(cluster != cluster(to))
+        {
+            return new int[]{to};   //Waypoints either side of a border are neighbours
+        }
+
+        searchCluster(from, to, cluster, false);
+        return trace(from, to);
+    }
+
+    //Grid points after from up to and including to, following the parents left by the last search
+    private int[] trace(int from, int to)
+    {
+        int length = 0;
+        for(int i = to; i != from; i = state.getParent(i))
+        {
+            length++;
+        }
+        int[] segment = new int[length];
+        int curr = to;
+        for(int i = length - 1; i >= 0; i--)
+        {
+            segment[i] = curr;
+            curr = state.getParent(curr);
+        }
+        return segment;
+    }
+
+    private static int[] toArray(ArrayList<Integer> list)
+    {
+        int[] array = new int[list.size()];
+        for(int i = 0; i < array.length; i++)
+        {
+            array[i] = list.get(i);
+        }
+        return array;
+    }
+
+    //Abstract path whose segments are refined one at a time as they are iterated,
+    //so the start of a long path is available before the rest has been computed
+    public class HierarchicalPath implements Iterator<int[]>
+    {
+        private final int[] waypoints;
+        private final double cost;
+        private final boolean complete;     //Waypoints are every grid point of the path, with nothing to refine
+        private final ArrayList<int[]> refined;
+        private int next;
+
+        private HierarchicalPath(int[] waypoints, double cost, boolean complete)
+        {
+            this.waypoints = waypoints;
+            this.cost = cost;
+            this.complete = complete;
+            refined = new ArrayList<>();
+            next = 1;
+        }
+
+        public boolean isFound()
+        {
+            return waypoints.length > 0;
+        }
+
+        public double getCost()
+        {
+            return cost;
+        }
+
+        //Start, entrances crossed and end, as grid indices
+        public int[] getWaypoints()
+        {
+            return waypoints;
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            return next < waypoints.length;
+        }
+
+        //Grid points of the next segment, excluding the waypoint it starts from
+        @Override
+        public int[] next()
+        {
+            if(!hasNext())
+            {
+                throw new NoSuchElementException();
+            }
+            int[] segment = complete ? new int[]{waypoints[next]} : refine(waypoints[next - 1], waypoints[next]);
+            refined.add(segment);
+            next++;
+            return segment;
+        }
+
+        //Refines every remaining segment, returning the full path from the start to the end
+        public int[] toArray()
+        {
+            while(hasNext())
+            {
+                next();
+            }
+
+            if(!isFound())
+            {
+                return new int[0];
+            }
+
+            int length = 1;
+            for(int[] segment : refined)
+            {
+                length += segment.length;
+            }
+
+            int[] path = new int[length];
+            path[0] = waypoints[0];
+            int pos = 1;
+            for(int[] segment : refined)
+            {
+                System.arraycopy(segment, 0, path, pos, segment.length);
+                pos += segment.length;
+            }
+            return path;
+        }
+    }
+}
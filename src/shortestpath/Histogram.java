@@ -0,0 +1,75 @@
+package shortestpath;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+//Lock free histogram of non-negative values in power of two buckets. Percentiles are
+//accurate to within a factor of two, which is enough to tell a slow query from a normal one.
+public class Histogram
+{
+    private final AtomicLongArray buckets = new AtomicLongArray(64);   //Bucket b holds values in [2^(b-1), 2^b)
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long value)
+    {
+        if(value < 0)
+        {
+            return;     //Measurement not available
+        }
+        buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(value));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+        max.accumulateAndGet(value, Math::max);
+    }
+
+    public long getCount()
+    {
+        return count.get();
+    }
+
+    public double getMean()
+    {
+        long n = count.get();
+        return n == 0 ? 0 : (double)sum.get() / n;
+    }
+
+    public long getMax()
+    {
+        return max.get();
+    }
+
+    //Upper bound of the bucket containing the given percentile (0 to 100)
+    public long getPercentile(double percentile)
+    {
+        long n = count.get();
+        if(n == 0)
+        {
+            return 0;
+        }
+
+        long rank = (long)Math.ceil(percentile / 100 * n);
+        long seen = 0;
+        for(int b = 0; b < 64; b++)
+        {
+            seen += buckets.get(b);
+            if(seen >= rank)
+            {
+                return b == 0 ? 0 : Math.min(max.get(), (1L << b) - 1);
+            }
+        }
+        return max.get();
+    }
+
+    public void reset()
+    {
+        for(int b = 0; b < 64; b++)
+        {
+            buckets.set(b, 0);
+        }
+        count.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+}
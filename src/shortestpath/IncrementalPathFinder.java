@@ -0,0 +1,402 @@
+package shortestpath;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+
+//D* Lite: searches backward from the goal and keeps its g and rhs values between queries, so after heights
+//or node costs change only the part of the search those edges affect is repaired. The start may also move
+//along the path between queries without starting over.
+//
+//Edge costs come from a cost model, as in EdgeCosts.compute, times the mean cost multiplier of the edge's two
+//ends, and are never below the distance between the points. The planar distance used as the heuristic therefore
+//never overestimates however the terrain changes.
+//
+//Heights are changed in the finder's own copy of the grid, so the grid the costs were compiled on, and anything
+//else built on it such as landmarks or a hierarchy, is left as it was. Not thread safe.
+public class IncrementalPathFinder
+{
+    private static final int CANCEL_CHECK_INTERVAL = 1024;  //Expansions between polls of the cancellation token
+    private static final double HEURISTIC_SCALE = 1 - 1e-6;  //Covers rounding of the edge costs to float
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+    private static final boolean CPU_TIME = THREADS.isCurrentThreadCpuTimeSupported() && THREADS.isThreadCpuTimeEnabled();
+    private static final boolean ALLOCATION = THREADS.isThreadAllocatedMemorySupported() && THREADS.isThreadAllocatedMemoryEnabled();
+
+    private final Grid grid;
+    private final Neighbourhood neighbourhood;
+    private final CostModel model;      //Gives the cost of each edge before its multipliers
+    private final EdgeCosts edgeCosts;  //Private copy, changed in place as the terrain changes
+    private final float[] costs;
+    private final int directions;
+    private final float[] multipliers;  //Cost multiplier of each node, infinite where blocked
+
+    private final double[] g;           //Cost to the goal as of the last expansion
+    private final double[] rhs;         //Cost to the goal by one step from the neighbours' g
+    private final IndexedMinHeap open;  //Inconsistent nodes, keyed by [min(g, rhs) + h + km, min(g, rhs)]
+
+    private int goal = -1;
+    private int start = -1;
+    private double km;                  //Sum of heuristic drops from the start moving, added to every new key
+    private CancellationToken cancellation = CancellationToken.NONE;
+    private volatile MetricsSink metrics;
+
+    private int expanded;
+    private int touched;
+    private int decreaseKeys;
+    private int peakOpen;
+
+    //The edge costs must have been compiled from the model, which is used again for edges around changed points
+    public IncrementalPathFinder(EdgeCosts edgeCosts, CostModel model)
+    {
+        Grid source = edgeCosts.getGrid();
+        grid = new Grid(source.getWidth(), source.getHeight(), source.getSpacing(), source.getHeights().clone());
+        neighbourhood = edgeCosts.getNeighbourhood();
+        this.model = model;
+        directions = edgeCosts.directions();
+        costs = edgeCosts.getCosts().clone();
+        this.edgeCosts = new EdgeCosts(grid, neighbourhood, costs);
+
+        multipliers = new float[grid.size()];
+        Arrays.fill(multipliers, 1);
+
+        g = new double[grid.size()];
+        rhs = new double[grid.size()];
+        open = new IndexedMinHeap(grid.size());
+    }
+
+    //Edge costs are the straight line distances between neighbouring points
+    public IncrementalPathFinder(EdgeCosts edgeCosts)
+    {
+        this(edgeCosts, CostModel.DISTANCE);
+    }
+
+    //The finder's own copy of the grid, including every height change made so far
+    public Grid getGrid()
+    {
+        return grid;
+    }
+
+    //Current costs, including every change made so far
+    public EdgeCosts getEdgeCosts()
+    {
+        return edgeCosts;
+    }
+
+    public void setMetricsSink(MetricsSink metrics)
+    {
+        this.metrics = metrics;
+    }
+
+    //Polled while searching. Cancelling leaves the search state valid, so the next query carries on from it.
+    public void setCancellationToken(CancellationToken cancellation)
+    {
+        this.cancellation = cancellation;
+    }
+
+    //Finds the cheapest path from start to goal. A new goal starts the search over, while a new start or
+    //changed costs only repair what they affect.
+    public PathResult find(int start, int goal)
+    {
+        long cpuBegin = CPU_TIME ? THREADS.getCurrentThreadCpuTime() : 0;
+        long allocatedBegin = ALLOCATION ? THREADS.getCurrentThreadAllocatedBytes() : 0;
+        long begin = System.nanoTime();
+        expanded = 0;
+        touched = 0;
+        decreaseKeys = 0;
+        peakOpen = 0;
+
+        if(goal != this.goal)
+        {
+            initialize(start, goal);
+        }
+        else if(start != this.start)
+        {
+            km += heuristic(this.start, start);
+            this.start = start;
+        }
+        computeShortestPath();
+        int[] path = extractPath();
+
+        long wall = System.nanoTime() - begin;
+        long cpu = CPU_TIME ? THREADS.getCurrentThreadCpuTime() - cpuBegin : -1;
+        long allocated = ALLOCATION ? THREADS.getCurrentThreadAllocatedBytes() - allocatedBegin : -1;
+        SearchStats stats = new SearchStats(expanded, touched, decreaseKeys, peakOpen, wall, cpu, allocated);
+        MetricsSink sink = metrics;
+        if(sink != null)
+        {
+            sink.record(stats);
+        }
+
+        return new PathResult(path, path.length == 0 ? Double.POSITIVE_INFINITY : rhs[start], stats);
+    }
+
+    //Sets the heights of the given nodes in the finder's grid and recomputes the edges around them
+    public void setHeights(int[] nodes, double[] heights)
+    {
+        for(int i = 0; i < nodes.length; i++)
+        {
+            grid.setZ(nodes[i], heights[i]);
+        }
+        updateEdges(nodes);
+    }
+
+    //Sets the cost multipliers of the given nodes, which must be at least 1. Infinity blocks a node.
+    public void setMultipliers(int[] nodes, float[] values)
+    {
+        for(int i = 0; i < nodes.length; i++)
+        {
+            if(!(values[i] >= 1))
+            {
+                throw new IllegalArgumentException("Cost multiplier must be at least 1: " + values[i]);
+            }
+            multipliers[nodes[i]] = values[i];
+        }
+        updateEdges(nodes);
+    }
+
+    public float getMultiplier(int node)
+    {
+        return multipliers[node];
+    }
+
+    private void initialize(int start, int goal)
+    {
+        this.start = start;
+        this.goal = goal;
+        km = 0;
+        Arrays.fill(g, Double.POSITIVE_INFINITY);
+        Arrays.fill(rhs, Double.POSITIVE_INFINITY);
+        open.clear();
+
+        rhs[goal] = 0;
+        open.add(goal, heuristic(start, goal), 0);
+    }
+
+    //Recomputes every edge into or out of the given nodes, repairing the search around those that changed
+    private void updateEdges(int[] nodes)
+    {
+        for(int node : nodes)
+        {
+            int col = grid.column(node);
+            int row = grid.row(node);
+            for(int dir = 0; dir < directions; dir++)
+            {
+                int adj = neighbourhood.neighbour(grid, col, row, dir);
+                if(adj == -1)
+                {
+                    continue;
+                }
+                setCost(node, dir, adj, edgeCost(node, adj));
+                setCost(adj, neighbourhood.opposite(dir), node, edgeCost(adj, node));
+            }
+        }
+    }
+
+    //Cost of the edge from u to v under the model, times the mean multiplier of its ends, at least the distance
+    private float edgeCost(int u, int v)
+    {
+        double multiplier = ((double)multipliers[u] + multipliers[v]) / 2;
+        if(multiplier == Double.POSITIVE_INFINITY)
+        {
+            return Float.POSITIVE_INFINITY;
+        }
+        double distance = grid.distance(u, v);
+        return (float)Math.max(distance, model.cost(grid, u, v, distance) * multiplier);
+    }
+
+    //Changes the cost of the edge from u to v, in direction dir
+    private void setCost(int u, int dir, int v, float cost)
+    {
+        float old = costs[u * directions + dir];
+        if(old == cost)
+        {
+            return;
+        }
+        costs[u * directions + dir] = cost;
+
+        if(goal == -1 || u == goal)
+        {
+            return;     //Nothing searched yet, or the goal's rhs is always 0
+        }
+        if(cost < old)
+        {
+            rhs[u] = Math.min(rhs[u], cost + g[v]);
+        }
+        else if(rhs[u] == old + g[v])
+        {
+            rhs[u] = lowestSuccessor(u);    //The edge was u's best way to the goal
+        }
+        updateNode(u);
+    }
+
+    private void computeShortestPath()
+    {
+        while(!open.isEmpty())
+        {
+            double startKey = Math.min(g[start], rhs[start]);
+            double topPriority = open.peekPriority();
+            double topTie = open.peekTie();
+            boolean startBehindTop = topPriority < startKey + km || topPriority == startKey + km && topTie < startKey;
+            if(!startBehindTop && rhs[start] <= g[start])
+            {
+                break;      //The start is consistent and no node left can give it a cheaper path
+            }
+
+            peakOpen = Math.max(peakOpen, open.size());
+            if(++expanded % CANCEL_CHECK_INTERVAL == 0 && cancellation.isCancelled())
+            {
+                throw new CancellationException("Replanning from " + start + " to " + goal + " was cancelled");
+            }
+
+            int u = open.peek();
+            double key = Math.min(g[u], rhs[u]);
+            double priority = key + heuristic(start, u) + km;
+            if(topPriority < priority || topPriority == priority && topTie < key)
+            {
+                open.update(u, priority, key);  //Key is out of date since the start moved
+                decreaseKeys++;
+            }
+            else if(g[u] > rhs[u])
+            {
+                //Overconsistent: its cost is now known, so pass it on to the predecessors
+                double oldG = g[u];
+                g[u] = rhs[u];
+                open.remove(u);
+                updatePredecessors(u, oldG);
+            }
+            else
+            {
+                //Underconsistent: its cost went up, so redo it and every predecessor that relied on it
+                double oldG = g[u];
+                g[u] = Double.POSITIVE_INFINITY;
+                updateNode(u);
+                updatePredecessors(u, oldG);
+            }
+        }
+    }
+
+    //Updates the rhs of every node with an edge into u, after g[u] changed from oldG
+    private void updatePredecessors(int u, double oldG)
+    {
+        int col = grid.column(u);
+        int row = grid.row(u);
+        for(int dir = 0; dir < directions; dir++)
+        {
+            int s = neighbourhood.neighbour(grid, col, row, dir);
+            if(s == -1 || s == goal)
+            {
+                continue;
+            }
+            float cost = edgeCosts.getReverseCost(u, dir);
+            if(cost + g[u] < rhs[s])
+            {
+                rhs[s] = cost + g[u];
+            }
+            else if(rhs[s] != Double.POSITIVE_INFINITY && rhs[s] == cost + oldG)
+            {
+                //s relied on u's old g, which went up, so look at all of its successors again
+                rhs[s] = lowestSuccessor(s);
+            }
+            else
+            {
+                continue;
+            }
+            updateNode(s);
+        }
+    }
+
+    //Lowest edge cost plus g over the successors of u
+    private double lowestSuccessor(int u)
+    {
+        double best = Double.POSITIVE_INFINITY;
+        for(int dir = 0; dir < directions; dir++)
+        {
+            float cost = costs[u * directions + dir];
+            if(cost != Float.POSITIVE_INFINITY)
+            {
+                best = Math.min(best, cost + g[edgeCosts.getNeighbour(u, dir)]);
+            }
+        }
+        return best;
+    }
+
+    //Puts u in the open list if it is inconsistent, with an up to date key, or takes it out if not
+    private void updateNode(int u)
+    {
+        if(g[u] != rhs[u])
+        {
+            double key = Math.min(g[u], rhs[u]);
+            double priority = key + heuristic(start, u) + km;
+            if(open.contains(u))
+            {
+                open.update(u, priority, key);
+                decreaseKeys++;
+            }
+            else
+            {
+                open.add(u, priority, key);
+                touched++;
+            }
+        }
+        else if(open.contains(u))
+        {
+            open.remove(u);
+        }
+    }
+
+    //Follows the cheapest successor from the start to the goal, or returns an empty path if there is none.
+    //The start itself may be left unexpanded, but its rhs is its cost by way of the successors' g.
+    private int[] extractPath()
+    {
+        if(rhs[start] == Double.POSITIVE_INFINITY)
+        {
+            return new int[0];
+        }
+
+        int[] path = new int[16];
+        int length = 0;
+        int curr = start;
+        path[length++] = curr;
+        while(curr != goal)
+        {
+            int next = -1;
+            double best = Double.POSITIVE_INFINITY;
+            for(int dir = 0; dir < directions; dir++)
+            {
+                float cost = costs[curr * directions + dir];
+                if(cost != Float.POSITIVE_INFINITY)
+                {
+                    int adj = edgeCosts.getNeighbour(curr, dir);
+                    if(cost + g[adj] < best)
+                    {
+                        best = cost + g[adj];
+                        next = adj;
+                    }
+                }
+            }
+            if(next == -1 || length == grid.size())
+            {
+                return new int[0];
+            }
+
+            if(length == path.length)
+            {
+                path = Arrays.copyOf(path, length * 2);
+            }
+            path[length++] = next;
+            curr = next;
+        }
+
+        return Arrays.copyOf(path, length);
+    }
+
+    //Planar distance, a lower bound on every edge cost between the two points whatever the heights and multipliers
+    private double heuristic(int a, int b)
+    {
+        double dx = grid.getX(a) - grid.getX(b);
+        double dy = grid.getY(a) - grid.getY(b);
+        return Math.sqrt(dx*dx + dy*dy) * HEURISTIC_SCALE;
+    }
+}
@@ -0,0 +1,243 @@
+package shortestpath;
+
+import java.util.Arrays;
+
+//Ids are ordered by priority, then by a second tie breaking priority that defaults to 0
+public class IndexedMinHeap
+{
+    private int[] heap;             //Node ids in heap order
+    private int[] positions;        //Position of each node id in the heap, -1 if not contained
+    private double[] priorities;    //Priority of each node id
+    private double[] ties;          //Tie breaking priority of each node id
+    private int size;
+
+    public IndexedMinHeap(int capacity)
+    {
+        heap = new int[capacity];
+        positions = new int[capacity];
+        priorities = new double[capacity];
+        ties = new double[capacity];
+
+        for(int i = 0; i < capacity; i++)
+        {
+            positions[i] = -1;
+        }
+    }
+
+    //Grows the heap so it can hold ids up to capacity - 1, keeping everything in it
+    public void ensureCapacity(int capacity)
+    {
+        int old = positions.length;
+        if(capacity <= old)
+        {
+            return;
+        }
+        heap = Arrays.copyOf(heap, capacity);
+        positions = Arrays.copyOf(positions, capacity);
+        priorities = Arrays.copyOf(priorities, capacity);
+        ties = Arrays.copyOf(ties, capacity);
+        Arrays.fill(positions, old, capacity, -1);
+    }
+
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public boolean contains(int id)
+    {
+        return positions[id] != -1;
+    }
+
+    public double getPriority(int id)
+    {
+        return priorities[id];
+    }
+
+    public double getTie(int id)
+    {
+        return ties[id];
+    }
+
+    public int peek()
+    {
+        return heap[0];
+    }
+
+    public double peekPriority()
+    {
+        return priorities[heap[0]];
+    }
+
+    public double peekTie()
+    {
+        return ties[heap[0]];
+    }
+
+    public void add(int id, double priority)
+    {
+        add(id, priority, 0);
+    }
+
+    public void add(int id, double priority, double tie)
+    {
+        heap[size] = id;
+        positions[id] = size;
+        priorities[id] = priority;
+        ties[id] = tie;
+        siftUp(size++);
+    }
+
+    public void decreaseKey(int id, double priority)
+    {
+        priorities[id] = priority;
+        siftUp(positions[id]);
+    }
+
+    //Changes the priority of a contained id in either direction
+    public void update(int id, double priority, double tie)
+    {
+        priorities[id] = priority;
+        ties[id] = tie;
+        int pos = positions[id];
+        siftUp(pos);
+        if(positions[id] == pos)
+        {
+            siftDown(pos);
+        }
+    }
+
+    //Removes a contained id wherever it is in the heap
+    public void remove(int id)
+    {
+        int pos = positions[id];
+        positions[id] = -1;
+
+        size--;
+        if(pos < size)
+        {
+            int last = heap[size];
+            heap[pos] = last;
+            positions[last] = pos;
+            siftUp(pos);
+            if(positions[last] == pos)
+            {
+                siftDown(pos);
+            }
+        }
+    }
+
+    //Removes and returns the id with the lowest priority
+    public int poll()
+    {
+        int min = heap[0];
+        positions[min] = -1;
+
+        size--;
+        if(size > 0)
+        {
+            int last = heap[size];
+            heap[0] = last;
+            positions[last] = 0;
+            siftDown(0);
+        }
+
+        return min;
+    }
+
+    //Id at a position from 0 to size - 1, so the contained ids can be scanned in heap order without removing them
+    public int get(int position)
+    {
+        return heap[position];
+    }
+
+    //Changes the priority of a contained id, or adds an id, without restoring the heap order. Call heapify
+    //after the last of them, which puts any number of changes in order in O(size) rather than O(size log size).
+    public void set(int id, double priority, double tie)
+    {
+        if(positions[id] == -1)
+        {
+            heap[size] = id;
+            positions[id] = size++;
+        }
+        priorities[id] = priority;
+        ties[id] = tie;
+    }
+
+    public void heapify()
+    {
+        for(int pos = (size >>> 1) - 1; pos >= 0; pos--)
+        {
+            siftDown(pos);
+        }
+    }
+
+    //Only the ids still in the heap are reset, so clearing is O(size) rather than O(capacity)
+    public void clear()
+    {
+        for(int i = 0; i < size; i++)
+        {
+            positions[heap[i]] = -1;
+        }
+        size = 0;
+    }
+
+    private void siftUp(int pos)
+    {
+        int id = heap[pos];
+        double priority = priorities[id];
+        double tie = ties[id];
+        while(pos > 0)
+        {
+            int parentPos = (pos - 1) >>> 1;
+            int parent = heap[parentPos];
+            if(!less(priority, tie, parent))
+            {
+                break;
+            }
+            heap[pos] = parent;
+            positions[parent] = pos;
+            pos = parentPos;
+        }
+        heap[pos] = id;
+        positions[id] = pos;
+    }
+
+    private void siftDown(int pos)
+    {
+        int id = heap[pos];
+        int half = size >>> 1;
+        while(pos < half)
+        {
+            int childPos = 2 * pos + 1;
+            int child = heap[childPos];
+            int rightPos = childPos + 1;
+            if(rightPos < size && less(priorities[heap[rightPos]], ties[heap[rightPos]], child))
+            {
+                childPos = rightPos;
+                child = heap[childPos];
+            }
+            if(!less(priorities[child], ties[child], id))
+            {
+                break;
+            }
+            heap[pos] = child;
+            positions[child] = pos;
+            pos = childPos;
+        }
+        heap[pos] = id;
+        positions[id] = pos;
+    }
+
+    //Whether (priority, tie) orders strictly before the given id
+    private boolean less(double priority, double tie, int id)
+    {
+        double other = priorities[id];
+        return priority < other || priority == other && tie < ties[id];
+    }
+}
@@ -0,0 +1,141 @@
+package shortestpath;
+
+import java.util.Arrays;
+
+//ALT heuristic: exact distances from a few landmark points give a lower bound on the distance between
+//any two points by the triangle inequality, which is far tighter than straight line distance on hilly terrain.
+//Tables are computed over symmetric edge costs, and remain admissible for any costs that are never lower.
+public class Landmarks implements Heuristic
+{
+    private final int[] nodes;
+    private final float[][] distances;  //distances[landmark][node]
+    private final double slack;         //Covers rounding of the tables to float, so estimates never overshoot
+
+    public Landmarks(int[] nodes, float[][] distances)
+    {
+        this.nodes = nodes;
+        this.distances = distances;
+
+        float max = 0;
+        for(float[] table : distances)
+        {
+            for(float d : table)
+            {
+                if(d != Float.POSITIVE_INFINITY && d > max)
+                {
+                    max = d;
+                }
+            }
+        }
+        slack = 2 * Math.ulp(max);
+    }
+
+    //Picks landmarks by farthest point selection: each one is the point farthest from all landmarks chosen so far
+    public static Landmarks select(EdgeCosts costs, int count)
+    {
+        int size = costs.getGrid().size();
+        int[] nodes = new int[count];
+        float[][] distances = new float[count][];
+
+        float[] closest = dijkstra(costs, 0);   //Seed from an arbitrary point, its table is not kept
+        for(int k = 0; k < count; k++)
+        {
+            int farthest = 0;
+            for(int i = 1; i < size; i++)
+            {
+                if(closest[i] != Float.POSITIVE_INFINITY && closest[i] > closest[farthest])
+                {
+                    farthest = i;
+                }
+            }
+
+            nodes[k] = farthest;
+            distances[k] = dijkstra(costs, farthest);
+
+            if(k == 0)
+            {
+                closest = distances[0].clone();
+            }
+            else
+            {
+                for(int i = 0; i < size; i++)
+                {
+                    closest[i] = Math.min(closest[i], distances[k][i]);
+                }
+            }
+        }
+
+        return new Landmarks(nodes, distances);
+    }
+
+    //Distances from source to every point, infinite where unreachable
+    public static float[] dijkstra(EdgeCosts costs, int source)
+    {
+        int size = costs.getGrid().size();
+        double[] dist = new double[size];
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        IndexedMinHeap open = new IndexedMinHeap(size);
+
+        dist[source] = 0;
+        open.add(source, 0);
+        while(!open.isEmpty())
+        {
+            int curr = open.poll();
+            for(int dir = 0; dir < costs.directions(); dir++)
+            {
+                float cost = costs.getCost(curr, dir);
+                if(cost == Float.POSITIVE_INFINITY)
+                {
+                    continue;
+                }
+
+                int adj = costs.getNeighbour(curr, dir);
+                double adjDist = dist[curr] + cost;
+                if(adjDist < dist[adj])
+                {
+                    if(open.contains(adj))
+                    {
+                        open.decreaseKey(adj, adjDist);
+                    }
+                    else
+                    {
+                        open.add(adj, adjDist);
+                    }
+                    dist[adj] = adjDist;
+                }
+            }
+        }
+
+        float[] result = new float[size];
+        for(int i = 0; i < size; i++)
+        {
+            result[i] = (float)dist[i];
+        }
+        return result;
+    }
+
+    @Override
+    public double estimate(int from, int to)
+    {
+        double best = 0;
+        for(float[] table : distances)
+        {
+            double diff = Math.abs((double)table[to] - table[from]);
+            if(diff > best && diff != Double.POSITIVE_INFINITY)
+            {
+                best = diff;
+            }
+        }
+        return Math.max(0, best - slack);
+    }
+
+    public int[] getNodes()
+    {
+        return nodes;
+    }
+
+    public float[][] getDistances()
+    {
+        return distances;
+    }
+}
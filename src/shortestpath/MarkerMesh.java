@@ -0,0 +1,116 @@
+package shortestpath;
+
+import javafx.scene.shape.MeshView;
+import javafx.scene.shape.TriangleMesh;
+
+//Draws a small octahedron at each of a set of grid points, all in one mesh. A single node renders
+//thousands of markers far faster than one Sphere node each, and new markers replace the mesh's
+//arrays in place rather than adding and removing nodes.
+public class MarkerMesh extends MeshView
+{
+    //Octahedron corners as offsets from the marker's centre, in units of the radius
+    private static final float[] CORNERS = {1, 0, 0,  -1, 0, 0,  0, 1, 0,  0, -1, 0,  0, 0, 1,  0, 0, -1};
+    
+    //Corner indices of the eight triangles, wound outward
+    private static final int[] TRIANGLES =
+    {
+        0, 2, 4,  2, 1, 4,  1, 3, 4,  3, 0, 4,
+        2, 0, 5,  1, 2, 5,  3, 1, 5,  0, 3, 5
+    };
+    
+    private final Grid grid;
+    private final TriangleMesh mesh = new TriangleMesh();
+    private double[] centres = new double[0];  //Interleaved x, y, z of each marker
+    private double radius;
+    
+    public MarkerMesh(Grid grid, double radius)
+    {
+        this.grid = grid;
+        this.radius = radius;
+        mesh.getTexCoords().setAll(0, 0);
+        setMesh(mesh);
+    }
+    
+    //Marks every point of the grid
+    public void setAllMarkers()
+    {
+        int[] all = new int[grid.size()];
+        for(int i = 0; i < all.length; i++)
+        {
+            all[i] = i;
+        }
+        setMarkers(all);
+    }
+    
+    //Replaces the marked points with the given grid indices
+    public void setMarkers(int[] indices)
+    {
+        double[] xyz = new double[indices.length * 3];
+        for(int i = 0; i < indices.length; i++)
+        {
+            xyz[i * 3] = grid.getX(indices[i]);
+            xyz[i * 3 + 1] = grid.getY(indices[i]);
+            xyz[i * 3 + 2] = grid.getZ(indices[i]);
+        }
+        setPositions(xyz);
+    }
+    
+    //Replaces the markers with ones at the given positions, as interleaved x, y, z, which need not be grid points
+    public void setPositions(double[] xyz)
+    {
+        centres = xyz;
+        int count = xyz.length / 3;
+        
+        int[] faces = new int[count * TRIANGLES.length * 2];
+        int f = 0;
+        for(int m = 0; m < count; m++)
+        {
+            int first = m * 6;  //First corner of this marker's octahedron
+            for(int corner : TRIANGLES)
+            {
+                faces[f++] = first + corner;
+                faces[f++] = 0;
+            }
+        }
+        
+        updatePoints();
+        mesh.getFaces().setAll(faces);
+    }
+    
+    public void clear()
+    {
+        setMarkers(new int[0]);
+    }
+    
+    public double getRadius()
+    {
+        return radius;
+    }
+    
+    //Resizes every marker. Only the corner positions change, the faces stay as they are.
+    public void setRadius(double radius)
+    {
+        this.radius = radius;
+        updatePoints();
+    }
+    
+    private void updatePoints()
+    {
+        float r = (float)Math.max(0, radius);
+        float[] points = new float[centres.length / 3 * CORNERS.length];
+        int p = 0;
+        for(int m = 0; m < centres.length; m += 3)
+        {
+            float x = (float)centres[m];
+            float y = (float)centres[m + 1];
+            float z = (float)centres[m + 2];
+            for(int c = 0; c < CORNERS.length; c += 3)
+            {
+                points[p++] = x + CORNERS[c] * r;
+                points[p++] = y + CORNERS[c + 1] * r;
+                points[p++] = z + CORNERS[c + 2] * r;
+            }
+        }
+        mesh.getPoints().setAll(points);
+    }
+}
@@ -0,0 +1,7 @@
+package shortestpath;
+
+//Receives the stats of every query answered by a PathFinder. Called on the searching thread.
+public interface MetricsSink
+{
+    void record(SearchStats stats);
+}
@@ -0,0 +1,63 @@
+package shortestpath;
+
+//Moves allowed from a grid point, as column and row offsets.
+//Directions are ordered so that opposite(dir) is the move back along the same edge.
+public class Neighbourhood
+{
+    public static final Neighbourhood FOUR = new Neighbourhood(4);
+    public static final Neighbourhood EIGHT = new Neighbourhood(8);
+    public static final Neighbourhood SIXTEEN = new Neighbourhood(16);
+
+    //Each pair of consecutive entries is a move and its opposite
+    private static final int[] COLUMN_OFFSETS = {1, -1, 0, 0,   1, -1, 1, -1,   2, -2, 2, -2, 1, -1, 1, -1};
+    private static final int[] ROW_OFFSETS =    {0, 0, 1, -1,   1, -1, -1, 1,   1, -1, -1, 1, 2, -2, -2, 2};
+
+    private final int connectivity;
+
+    public Neighbourhood(int connectivity)
+    {
+        if(connectivity != 4 && connectivity != 8 && connectivity != 16)
+        {
+            throw new IllegalArgumentException("Connectivity must be 4, 8 or 16: " + connectivity);
+        }
+        this.connectivity = connectivity;
+    }
+
+    public int size()
+    {
+        return connectivity;
+    }
+
+    public int columnOffset(int dir)
+    {
+        return COLUMN_OFFSETS[dir];
+    }
+
+    public int rowOffset(int dir)
+    {
+        return ROW_OFFSETS[dir];
+    }
+
+    public int opposite(int dir)
+    {
+        return dir ^ 1;
+    }
+
+    //Difference between the index of a point and its neighbour in the given direction
+    public int indexOffset(Grid grid, int dir)
+    {
+        return COLUMN_OFFSETS[dir] * grid.getHeight() + ROW_OFFSETS[dir];
+    }
+
+    //Returns the neighbour of the point at (column, row), or -1 if it falls outside the grid
+    public int neighbour(Grid grid, int column, int row, int dir)
+    {
+        int col = column + COLUMN_OFFSETS[dir];
+        int r = row + ROW_OFFSETS[dir];
+        if(col < 0 || col >= grid.getWidth() || r < 0 || r >= grid.getHeight())
+        {
+            return -1;
+        }
+        return grid.index(col, r);
+    }
+}
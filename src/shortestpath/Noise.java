@@ -1,60 +1,146 @@
 package shortestpath;
 
+import java.util.Random;
+
+//Gradient noise. Unit gradients are precomputed as (cos, sin) pairs in one flat array and picked for
+//each lattice point through a permutation table, so sampling needs no trigonometry or Math.pow.
 public class Noise
 {
-    private final int max; 
-    private double[][] xyVectorDir;
-    
+    private final int size;         //Lattice size, a power of two. The noise repeats every size units.
+    private final int mask;
+    private final int[] perm;       //Permutation of 0 to size - 1, repeated twice so lookups never wrap
+    private final double[] gradients;   //x and y of each lattice gradient, interleaved
+
     public Noise(int max)
     {
-        this.max = max;
-        
-        xyVectorDir = new double[max][max];
-        for(int row = 0; row < max; row++)
+        this(max, new Random());
+    }
+
+    //The same seed always gives the same noise
+    public Noise(int max, long seed)
+    {
+        this(max, new Random(seed));
+    }
+
+    private Noise(int max, Random random)
+    {
+        size = Integer.highestOneBit(Math.max(2, max - 1) * 2 - 1);     //Smallest power of two >= max - 1
+        mask = size - 1;
+
+        gradients = new double[size * 2];
+        for(int i = 0; i < size; i++)
         {
-            for(int col = 0; col < max; col++)
-            {
-                xyVectorDir[row][col] = Math.random() * Math.PI * 2;    //Vector direction in radians
-            }
+            double angle = random.nextDouble() * Math.PI * 2;    //Vector direction in radians
+            gradients[i * 2] = Math.cos(angle);
+            gradients[i * 2 + 1] = Math.sin(angle);
+        }
+
+        perm = new int[size * 2];
+        for(int i = 0; i < size; i++)
+        {
+            perm[i] = i;
+        }
+        for(int i = size - 1; i > 0; i--)
+        {
+            int j = random.nextInt(i + 1);
+            int t = perm[i];
+            perm[i] = perm[j];
+            perm[j] = t;
         }
+        System.arraycopy(perm, 0, perm, size, size);
     }
-    
+
     public double noise(double x, double y)
     {
-        x %= max-1;
-        y %= max-1;
-        
-        int bx0 = (int)x;       //Bottom left bound
-        int by0 = (int)y;
-        int bx1 = (int)x + 1;   //Bottom right bound
-        int by1 = (int)y;
-        int bx2 = (int)x;       //Top left bound
-        int by2 = (int)y + 1;
-        int bx3 = (int)x + 1;   //Top right bound
-        int by3 = (int)y + 1;
-        
+        int bx = (int)x;       //Bottom left bound, floored for negative coordinates too
+        int by = (int)y;
+        if(x < bx)
+        {
+            bx--;
+        }
+        if(y < by)
+        {
+            by--;
+        }
+
+        double fx = x - bx;
+        double fy = y - by;
+        int xi = bx & mask;
+        int yi = by & mask;
+
+        //Gradient offsets of the bottom left, bottom right, top left and top right lattice points
+        int g0 = perm[perm[xi] + yi] << 1;
+        int g1 = perm[perm[xi + 1] + yi] << 1;
+        int g2 = perm[perm[xi] + yi + 1] << 1;
+        int g3 = perm[perm[xi + 1] + yi + 1] << 1;
+
         //Calculate dot products
-        double dp0 = (x - bx0) * (Math.cos(xyVectorDir[bx0][by0])) + (y - by0) * (Math.sin(xyVectorDir[bx0][by0]));
-        double dp1 = (x - bx1) * (Math.cos(xyVectorDir[bx1][by1])) + (y - by1) * (Math.sin(xyVectorDir[bx1][by1]));
-        double dp2 = (x - bx2) * (Math.cos(xyVectorDir[bx2][by2])) + (y - by2) * (Math.sin(xyVectorDir[bx2][by2]));
-        double dp3 = (x - bx3) * (Math.cos(xyVectorDir[bx3][by3])) + (y - by3) * (Math.sin(xyVectorDir[bx3][by3]));
-        
-        //Interpolate 
-        double x1 = lerp(dp0, dp1, fade(x - (int)x));    //Bottom
-        double x2 = lerp(dp2, dp3, fade(x - (int)x));    //Top
-        
-        return lerp(x1, x2, fade(y - (int)y));
-    }
-    
-    //Fade function
-    private double fade(double in)
-    {
-        return 6*Math.pow(in,5) - 15*Math.pow(in,4) + 10*Math.pow(in,3);
-    }
-    
-    //Linear interpolation
-    private double lerp(double val1, double val2, double percent)
-    {
-        return val1 + (percent * (val2 - val1));
-    }
-}
\ No newline at end of file
+        double dp0 = fx * gradients[g0] + fy * gradients[g0 + 1];
+        double dp1 = (fx - 1) * gradients[g1] + fy * gradients[g1 + 1];
+        double dp2 = fx * gradients[g2] + (fy - 1) * gradients[g2 + 1];
+        double dp3 = (fx - 1) * gradients[g3] + (fy - 1) * gradients[g3 + 1];
+
+        //Interpolate
+        double u = fade(fx);
+        double x1 = dp0 + u * (dp1 - dp0);    //Bottom
+        double x2 = dp2 + u * (dp3 - dp2);    //Top
+
+        return x1 + fade(fy) * (x2 - x1);
+    }
+
+    //Samples count points starting at (x, y) and stepping by (dx, dy), into out from offset.
+    //noise is small enough for the JIT to inline here, which leaves no calls in the loop. Writing the lattice
+    //lookup out by hand measured no faster, so it is not duplicated.
+    public void fill(double[] out, int offset, int count, double x, double y, double dx, double dy)
+    {
+        for(int i = 0; i < count; i++)
+        {
+            out[offset + i] = noise(x + i * dx, y + i * dy);
+        }
+    }
+
+    //Fractional Brownian motion: octaves of noise, each at lacunarity times the frequency and gain times the
+    //amplitude of the one before. One octave is plain noise.
+    public double fbm(double x, double y, int octaves, double lacunarity, double gain)
+    {
+        double sum = 0;
+        double frequency = 1;
+        double amplitude = 1;
+        for(int o = 0; o < octaves; o++)
+        {
+            sum += amplitude * noise(x * frequency, y * frequency);
+            frequency *= lacunarity;
+            amplitude *= gain;
+        }
+        return sum;
+    }
+
+    //fill() for fractional Brownian motion, accumulating one octave at a time over the whole run
+    public void fillFbm(double[] out, int offset, int count, double x, double y, double dx, double dy,
+                        int octaves, double lacunarity, double gain)
+    {
+        fill(out, offset, count, x, y, dx, dy);
+
+        double frequency = 1;
+        double amplitude = 1;
+        for(int o = 1; o < octaves; o++)
+        {
+            frequency *= lacunarity;
+            amplitude *= gain;
+            double fx = x * frequency;
+            double fy = y * frequency;
+            double fdx = dx * frequency;
+            double fdy = dy * frequency;
+            for(int i = 0; i < count; i++)
+            {
+                out[offset + i] += amplitude * noise(fx + i * fdx, fy + i * fdy);
+            }
+        }
+    }
+
+    //Fade function, 6t^5 - 15t^4 + 10t^3 in Horner form
+    private static double fade(double t)
+    {
+        return t * t * t * (t * (t * 6 - 15) + 10);
+    }
+}
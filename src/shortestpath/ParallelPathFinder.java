@@ -0,0 +1,491 @@
+package shortestpath;
+
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+//Answers one query with several threads, by delta-stepping. Points are kept in buckets of width delta by their
+//tentative cost. The lowest bucket is emptied in rounds, and each round relaxes the edges of all the points in
+//it at once, split across the workers. Costs are raised with compare-and-set, so workers never lock. Only edges
+//no longer than delta can lead back into the bucket being emptied, so longer ones are relaxed once afterwards.
+//The search stops once every point cheaper than the end is settled. It gives exactly the costs a sequential
+//search does, as both settle on the same least costs, and the path is then traced back along edges whose
+//costs add up exactly. Heuristics are not used, as buckets must be emptied in order of cost alone.
+//Queries run one at a time, as each already uses every worker, and share per point arrays that are allocated
+//once. Only the costs a query touched are cleared after it, and other per point marks are stamped with
+//counters that keep rising across queries, like SearchState's generations.
+public class ParallelPathFinder
+{
+    private static final int SPLIT_THRESHOLD = 256;     //Points relaxed by one task without splitting further
+    private static final long INFINITY = Double.doubleToRawLongBits(Double.POSITIVE_INFINITY);
+
+    private final EdgeCosts edgeCosts;
+    private final ForkJoinPool pool;
+    private final double maxCost;       //Highest finite edge cost, which bounds how far ahead buckets are used
+    private volatile double delta;
+    private State state;                //Arrays shared by every query, made by the first one
+
+    public ParallelPathFinder(EdgeCosts edgeCosts, int parallelism)
+    {
+        this.edgeCosts = edgeCosts;
+        pool = new ForkJoinPool(parallelism);
+
+        double max = 0;
+        for(float cost : edgeCosts.getCosts())
+        {
+            if(cost != Float.POSITIVE_INFINITY)
+            {
+                max = Math.max(max, cost);
+            }
+        }
+        maxCost = max;
+        delta = Math.max(edgeCosts.getGrid().getSpacing(), maxCost / 2);
+    }
+
+    public ParallelPathFinder(EdgeCosts edgeCosts)
+    {
+        this(edgeCosts, Runtime.getRuntime().availableProcessors());
+    }
+
+    public EdgeCosts getEdgeCosts()
+    {
+        return edgeCosts;
+    }
+
+    //Width of each bucket. Wider buckets give each round more points to share out, but points are more often
+    //relaxed again after their costs drop. Defaults to half the highest edge cost.
+    public void setDelta(double delta)
+    {
+        if(!(delta > 0) || delta == Double.POSITIVE_INFINITY)
+        {
+            throw new IllegalArgumentException("Delta must be positive and finite: " + delta);
+        }
+        this.delta = delta;
+    }
+
+    public double getDelta()
+    {
+        return delta;
+    }
+
+    //Searches from the query's start to its end, always for a shortest path, whatever its heuristic, weight and
+    //direction. Throws CancellationException if the query's cancellation token fires while searching.
+    public synchronized PathResult find(PathQuery query)
+    {
+        if(state == null)
+        {
+            state = new State(edgeCosts.getGrid().size());
+        }
+        return new Search(query, state).run();
+    }
+
+    public void shutdown()
+    {
+        pool.shutdown();
+    }
+
+    //Per point arrays and lists kept between queries. Every cost is infinite between queries, and marks from
+    //earlier queries never equal a current counter.
+    private static class State
+    {
+        private final AtomicLongArray dist;     //Tentative cost of each point, as raw double bits
+        private final int[] scanned;        //Last round in which each point was taken from its bucket
+        private final int[] settled;        //Last pass over a bucket in which each point was taken, for its long edges
+        private final int[] reached;        //Last query in which each point got a finite cost
+        private final IntList reachedPoints = new IntList();   //Points whose costs the current query must clear
+        private final IntList frontier = new IntList();
+        private final IntList bucketPoints = new IntList();    //Points taken from the current bucket, whose long edges wait
+        private IntList[] buckets = new IntList[0];
+        private int[] relaxed = new int[0];     //Points whose costs each relaxation lowered, or -1, per edge
+        private int round;
+        private int pass;
+        private int generation;
+
+        State(int size)
+        {
+            long[] infinite = new long[size];
+            Arrays.fill(infinite, INFINITY);
+            dist = new AtomicLongArray(infinite);
+            scanned = new int[size];
+            settled = new int[size];
+            reached = new int[size];
+        }
+
+        //Starts a query needing the given number of buckets
+        void begin(int bucketCount)
+        {
+            if(buckets.length != bucketCount)
+            {
+                buckets = new IntList[bucketCount];
+                for(int i = 0; i < bucketCount; i++)
+                {
+                    buckets[i] = new IntList();
+                }
+            }
+            else
+            {
+                for(IntList entries : buckets)
+                {
+                    entries.clear();    //Left over if the last query stopped early
+                }
+            }
+
+            //Stamps would be ambiguous after overflow, so each array is cleared once when its counter runs out
+            if(generation == Integer.MAX_VALUE)
+            {
+                Arrays.fill(reached, 0);
+                generation = 0;
+            }
+            generation++;
+            reachedPoints.clear();
+        }
+
+        int nextRound()
+        {
+            if(round == Integer.MAX_VALUE)
+            {
+                Arrays.fill(scanned, 0);
+                round = 0;
+            }
+            return ++round;
+        }
+
+        int nextPass()
+        {
+            if(pass == Integer.MAX_VALUE)
+            {
+                Arrays.fill(settled, 0);
+                pass = 0;
+            }
+            return ++pass;
+        }
+
+        void reach(int id)
+        {
+            if(reached[id] != generation)
+            {
+                reached[id] = generation;
+                reachedPoints.add(id);
+            }
+        }
+
+        //Puts every cost the query set back to infinity
+        void end()
+        {
+            for(int i = 0; i < reachedPoints.size; i++)
+            {
+                dist.lazySet(reachedPoints.items[i], INFINITY);
+            }
+            reachedPoints.clear();
+        }
+    }
+
+    //One running query. Only the thread calling run changes anything but the costs and the relaxed slots.
+    private class Search
+    {
+        private final int startIndex;
+        private final int endIndex;
+        private final CancellationToken cancellation;
+        private final int directions;
+        private final double width;         //Delta, fixed for this search
+
+        private final State state;
+        private final AtomicLongArray dist;
+        private final int[] scanned;
+        private final int[] settled;
+        private final IntList[] buckets;    //Used cyclically, as every tentative cost is within maxCost of the lowest
+        private int pending;                //Entries across all buckets, some of which may be stale
+
+        private int expanded;
+        private int touched;
+        private int decreaseKeys;
+        private int peakOpen;
+
+        Search(PathQuery query, State state)
+        {
+            startIndex = query.getStart();
+            endIndex = query.getEnd();
+            cancellation = query.getCancellationToken();
+            directions = edgeCosts.directions();
+            width = delta;
+
+            this.state = state;
+            state.begin((int)(maxCost / width) + 2);
+            dist = state.dist;
+            scanned = state.scanned;
+            settled = state.settled;
+            buckets = state.buckets;
+        }
+
+        PathResult run()
+        {
+            try
+            {
+                return search();
+            }
+            finally
+            {
+                state.end();
+            }
+        }
+
+        private PathResult search()
+        {
+            long begin = System.nanoTime();
+            dist.set(startIndex, Double.doubleToRawLongBits(0));
+            state.reach(startIndex);
+            touched++;
+            buckets[0].add(startIndex);
+            pending++;
+
+            IntList frontier = state.frontier;
+            IntList bucketPoints = state.bucketPoints;
+            long bucket = 0;
+            while(pending > 0)
+            {
+                //Find the lowest bucket with entries still in it
+                IntList entries = buckets[(int)(bucket % buckets.length)];
+                if(entries.size == 0)
+                {
+                    bucket++;
+                    continue;
+                }
+
+                int pass = state.nextPass();
+                bucketPoints.clear();
+                while(entries.size > 0)
+                {
+                    if(cancellation.isCancelled())
+                    {
+                        throw new CancellationException("Search from " + startIndex + " to " + endIndex + " was cancelled");
+                    }
+
+                    //Take the entries whose costs still fall in this bucket, once each
+                    int round = state.nextRound();
+                    frontier.clear();
+                    for(int i = 0; i < entries.size; i++)
+                    {
+                        int id = entries.items[i];
+                        if(scanned[id] != round && bucketOf(id) == bucket)
+                        {
+                            scanned[id] = round;
+                            frontier.add(id);
+                            if(settled[id] != pass)
+                            {
+                                settled[id] = pass;
+                                bucketPoints.add(id);
+                            }
+                        }
+                    }
+                    pending -= entries.size;
+                    entries.clear();
+
+                    peakOpen = Math.max(peakOpen, frontier.size);
+                    expanded += frontier.size;
+                    relax(frontier, true);
+                    queue(frontier.size);
+                }
+
+                //Long edges lead past this bucket, unless rounding puts a cost on its upper edge
+                relax(bucketPoints, false);
+                queue(bucketPoints.size);
+                if(entries.size > 0)
+                {
+                    continue;
+                }
+
+                //Everything in this bucket and below is settled, so the end's cost is final once it is in there
+                if(bucketOf(endIndex) <= bucket)
+                {
+                    break;
+                }
+                bucket++;
+            }
+
+            SearchStats stats = new SearchStats(expanded, touched, decreaseKeys, peakOpen, System.nanoTime() - begin, -1, -1);
+            double cost = Double.longBitsToDouble(dist.get(endIndex));
+            if(cost == Double.POSITIVE_INFINITY)
+            {
+                return new PathResult(new int[0], Double.POSITIVE_INFINITY, stats);
+            }
+            return new PathResult(path(), cost, stats);
+        }
+
+        private long bucketOf(int id)
+        {
+            return (long)(Double.longBitsToDouble(dist.get(id)) / width);
+        }
+
+        //Relaxes the short or the long edges of every point, in parallel if there are enough
+        private void relax(IntList points, boolean shortEdges)
+        {
+            int slots = points.size * directions;
+            if(state.relaxed.length < slots)
+            {
+                state.relaxed = new int[Math.max(slots, state.relaxed.length * 2)];
+            }
+            Relax task = new Relax(points.items, shortEdges, 0, points.size);
+            if(points.size <= SPLIT_THRESHOLD)
+            {
+                task.compute();
+            }
+            else
+            {
+                pool.invoke(task);
+            }
+        }
+
+        //Puts the points lowered by the last relaxation into the buckets their new costs fall in
+        private void queue(int count)
+        {
+            int[] relaxed = state.relaxed;
+            for(int i = 0; i < count * directions; i++)
+            {
+                int id = relaxed[i];
+                if(id != -1)
+                {
+                    state.reach(id);
+                    buckets[(int)(bucketOf(id) % buckets.length)].add(id);
+                    pending++;
+                }
+            }
+        }
+
+        //Walks back from the end, each step to a neighbour whose cost plus the edge's is exactly the point's own.
+        //Costs only ever came from such sums, so one always exists.
+        private int[] path()
+        {
+            Grid grid = edgeCosts.getGrid();
+            Neighbourhood neighbourhood = edgeCosts.getNeighbourhood();
+            IntList reversed = new IntList();
+            int curr = endIndex;
+            reversed.add(curr);
+            while(curr != startIndex)
+            {
+                double currDist = Double.longBitsToDouble(dist.get(curr));
+                int col = grid.column(curr);
+                int row = grid.row(curr);
+                int prev = -1;
+                for(int dir = 0; dir < directions && prev == -1; dir++)
+                {
+                    if(neighbourhood.neighbour(grid, col, row, dir) == -1)
+                    {
+                        continue;
+                    }
+                    int adj = edgeCosts.getNeighbour(curr, dir);
+                    if(Double.longBitsToDouble(dist.get(adj)) + edgeCosts.getReverseCost(curr, dir) == currDist)
+                    {
+                        prev = adj;
+                    }
+                }
+                curr = prev;
+                reversed.add(curr);
+            }
+
+            int[] path = new int[reversed.size];
+            for(int i = 0; i < path.length; i++)
+            {
+                path[i] = reversed.items[reversed.size - 1 - i];
+            }
+            return path;
+        }
+
+        //Relaxes edges of points[from] to points[to - 1], recording each lowered point in its edge's slot
+        private class Relax extends RecursiveAction
+        {
+            private static final long serialVersionUID = 1L;
+
+            private final int[] points;
+            private final boolean shortEdges;
+            private final int from;
+            private final int to;
+
+            Relax(int[] points, boolean shortEdges, int from, int to)
+            {
+                this.points = points;
+                this.shortEdges = shortEdges;
+                this.from = from;
+                this.to = to;
+            }
+
+            @Override
+            protected void compute()
+            {
+                if(to - from > SPLIT_THRESHOLD)
+                {
+                    int mid = (from + to) >>> 1;
+                    invokeAll(new Relax(points, shortEdges, from, mid),
+                              new Relax(points, shortEdges, mid, to));
+                    return;
+                }
+
+                int[] relaxed = state.relaxed;
+                int lowered = 0;
+                int firstTouch = 0;
+                for(int i = from; i < to; i++)
+                {
+                    int curr = points[i];
+                    double currDist = Double.longBitsToDouble(dist.get(curr));
+                    for(int dir = 0; dir < directions; dir++)
+                    {
+                        int slot = i * directions + dir;
+                        relaxed[slot] = -1;
+                        float cost = edgeCosts.getCost(curr, dir);
+                        if(cost == Float.POSITIVE_INFINITY || (cost <= width) != shortEdges)
+                        {
+                            continue;
+                        }
+
+                        //Costs are never negative, so their bits compare in the same order as they do
+                        int adj = edgeCosts.getNeighbour(curr, dir);
+                        long adjBits = Double.doubleToRawLongBits(currDist + cost);
+                        long old = dist.get(adj);
+                        while(adjBits < old && !dist.compareAndSet(adj, old, adjBits))
+                        {
+                            old = dist.get(adj);
+                        }
+                        if(adjBits < old)
+                        {
+                            relaxed[slot] = adj;
+                            lowered++;
+                            if(old == INFINITY)
+                            {
+                                firstTouch++;
+                            }
+                        }
+                    }
+                }
+                count(lowered, firstTouch);
+            }
+        }
+
+        private synchronized void count(int lowered, int firstTouch)
+        {
+            touched += firstTouch;
+            decreaseKeys += lowered - firstTouch;
+        }
+    }
+
+    //Growable list of ints, reused between rounds
+    private static class IntList
+    {
+        private int[] items = new int[16];
+        private int size;
+
+        void add(int item)
+        {
+            if(size == items.length)
+            {
+                items = Arrays.copyOf(items, size * 2);
+            }
+            items[size++] = item;
+        }
+
+        void clear()
+        {
+            size = 0;
+        }
+    }
+}
@@ -0,0 +1,296 @@
+package shortestpath;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+
+//Remembers the results of path queries, so repeated queries come back without searching. Results are keyed by
+//the grid's version, the start and end, and the search mode, and every result is dropped once the grid changes.
+//Goals that keep coming up with different starts get a reverse shortest path tree, built once, which then
+//answers a query from any start to that goal by following it. Both are bounded and evict the least recently
+//used entry. Safe to use from several threads; searches run outside the locks.
+public class PathCache
+{
+    private static final int TREE_THRESHOLD = 3;    //Misses to the same goal before a tree is built for it
+    private static final int CANCEL_CHECK_INTERVAL = 1024;
+
+    private final PathFinder finder;
+    private final Grid grid;
+
+    private final LinkedHashMap<Key, PathResult> results;
+    private final LinkedHashMap<Integer, Tree> trees;
+    private final LinkedHashMap<Integer, Integer> goalMisses;   //Recent goals, and misses to each
+    private final HashSet<Integer> building = new HashSet<>();  //Goals whose trees are being built
+    private long version;
+
+    private long hits;
+    private long treeHits;
+    private long misses;
+
+    //Holds at most maxResults results and maxTrees trees, each tree taking a distance and a next hop per point
+    public PathCache(PathFinder finder, int maxResults, int maxTrees)
+    {
+        this.finder = finder;
+        this.grid = finder.getGrid();
+        version = grid.getVersion();
+
+        results = lru(maxResults);
+        trees = lru(maxTrees);
+        goalMisses = lru(Math.max(16, maxResults));
+    }
+
+    private static <K, V> LinkedHashMap<K, V> lru(int max)
+    {
+        return new LinkedHashMap<K, V>(16, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest)
+            {
+                return size() > max;
+            }
+        };
+    }
+
+    public PathFinder getFinder()
+    {
+        return finder;
+    }
+
+    //Answers the query from the cache if it can, searching otherwise. Returned results are shared, so their
+    //paths must not be modified.
+    public PathResult find(PathQuery query)
+    {
+        long begin = System.nanoTime();
+        Key key = new Key(grid.getVersion(), query);
+        Tree tree;
+        boolean buildTree = false;
+        synchronized(this)
+        {
+            checkVersion(key.version);
+            PathResult cached = results.get(key);
+            if(cached != null)
+            {
+                //Stats describe this query, which did no searching, not the search that found the path
+                hits++;
+                return new PathResult(cached.getPath(), cached.getCost(), stats(begin));
+            }
+
+            tree = trees.get(key.end);
+            if(tree == null)
+            {
+                misses++;
+                int count = goalMisses.merge(key.end, 1, Integer::sum);
+                //Only one query builds each tree, the others search meanwhile
+                buildTree = count >= TREE_THRESHOLD && finder.getEdgeCosts() != null && building.add(key.end);
+            }
+            else
+            {
+                treeHits++;
+            }
+        }
+
+        if(buildTree)
+        {
+            try
+            {
+                tree = new Tree(finder.getEdgeCosts(), key.end, query.getCancellationToken());
+            }
+            finally
+            {
+                synchronized(this)
+                {
+                    building.remove(key.end);
+                }
+            }
+            synchronized(this)
+            {
+                if(key.version == version)
+                {
+                    trees.put(key.end, tree);
+                    goalMisses.remove(key.end);
+                }
+            }
+        }
+
+        PathResult result = tree != null ? tree.path(key.start, begin) : finder.find(query);
+        synchronized(this)
+        {
+            if(key.version == version)
+            {
+                results.put(key, result);
+            }
+        }
+        return result;
+    }
+
+    //Drops every cached result and tree. Changing heights through the grid does this by itself, this is for
+    //changes the grid cannot see, such as new edge costs.
+    public synchronized void invalidate()
+    {
+        results.clear();
+        trees.clear();
+        goalMisses.clear();
+    }
+
+    public synchronized long getHits()
+    {
+        return hits;
+    }
+
+    //Queries answered by following a reverse shortest path tree
+    public synchronized long getTreeHits()
+    {
+        return treeHits;
+    }
+
+    public synchronized long getMisses()
+    {
+        return misses;
+    }
+
+    //Stats of a query answered without searching, giving the time since begin
+    private static SearchStats stats(long begin)
+    {
+        return new SearchStats(0, 0, 0, 0, System.nanoTime() - begin, -1, -1);
+    }
+
+    private void checkVersion(long current)
+    {
+        if(current != version)
+        {
+            version = current;
+            invalidate();
+        }
+    }
+
+    //What a result depends on. Heuristics are compared by identity, so callers should reuse one instance.
+    private static class Key
+    {
+        private final long version;
+        private final int start;
+        private final int end;
+        private final Heuristic heuristic;
+        private final double weight;
+        private final boolean bidirectional;
+
+        Key(long version, PathQuery query)
+        {
+            this.version = version;
+            start = query.getStart();
+            end = query.getEnd();
+            heuristic = query.getHeuristic();
+            weight = query.getWeight();
+            bidirectional = query.isBidirectional();
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if(!(o instanceof Key))
+            {
+                return false;
+            }
+            Key k = (Key)o;
+            return version == k.version && start == k.start && end == k.end && heuristic == k.heuristic
+                    && weight == k.weight && bidirectional == k.bidirectional;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(version, start, end, System.identityHashCode(heuristic), weight, bidirectional);
+        }
+    }
+
+    //Shortest path tree into one goal, found by Dijkstra along reversed edges. Unweighted searches return a
+    //shortest path, so following the tree gives the same cost as searching, and never more for weighted ones.
+    private static class Tree
+    {
+        private final int goal;
+        private final double[] dist;    //Cost from each point to the goal
+        private final int[] next;       //Next point on the way to the goal, -1 if unreachable
+
+        Tree(EdgeCosts costs, int goal, CancellationToken cancellation)
+        {
+            this.goal = goal;
+            Grid grid = costs.getGrid();
+            Neighbourhood neighbourhood = costs.getNeighbourhood();
+            int size = grid.size();
+            dist = new double[size];
+            next = new int[size];
+            Arrays.fill(dist, Double.POSITIVE_INFINITY);
+            Arrays.fill(next, -1);
+            IndexedMinHeap open = new IndexedMinHeap(size);
+
+            dist[goal] = 0;
+            next[goal] = goal;
+            open.add(goal, 0);
+            int expanded = 0;
+            while(!open.isEmpty())
+            {
+                int curr = open.poll();
+                int col = grid.column(curr);
+                int row = grid.row(curr);
+                if(++expanded % CANCEL_CHECK_INTERVAL == 0 && cancellation.isCancelled())
+                {
+                    throw new CancellationException("Building the path tree to " + goal + " was cancelled");
+                }
+                for(int dir = 0; dir < costs.directions(); dir++)
+                {
+                    if(neighbourhood.neighbour(grid, col, row, dir) == -1)
+                    {
+                        continue;   //No neighbour that way
+                    }
+
+                    //Edge from the neighbour into curr
+                    float cost = costs.getReverseCost(curr, dir);
+                    if(cost == Float.POSITIVE_INFINITY)
+                    {
+                        continue;   //Impassable
+                    }
+                    int adj = costs.getNeighbour(curr, dir);
+                    double adjDist = dist[curr] + cost;
+                    if(adjDist < dist[adj])
+                    {
+                        if(open.contains(adj))
+                        {
+                            open.decreaseKey(adj, adjDist);
+                        }
+                        else
+                        {
+                            open.add(adj, adjDist);
+                        }
+                        dist[adj] = adjDist;
+                        next[adj] = curr;
+                    }
+                }
+            }
+        }
+
+        //Follows the tree from start, reporting the time since begin
+        PathResult path(int start, long begin)
+        {
+            if(next[start] == -1)
+            {
+                return new PathResult(new int[0], Double.POSITIVE_INFINITY, stats(begin));
+            }
+
+            int length = 1;
+            for(int i = start; i != goal; i = next[i])
+            {
+                length++;
+            }
+            int[] path = new int[length];
+            int curr = start;
+            for(int i = 0; i < length; i++)
+            {
+                path[i] = curr;
+                curr = next[curr];
+            }
+            return new PathResult(path, dist[start], stats(begin));
+        }
+    }
+}
@@ -0,0 +1,327 @@
+package shortestpath;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CancellationException;
+
+//Search engine for path queries over a grid. It has no dependency on JavaFX, and as it only reads the grid
+//and costs, one instance can answer queries from many threads as long as each uses its own SearchState.
+public class PathFinder
+{
+    private final Grid grid;
+    private final Neighbourhood neighbourhood;
+    private final EdgeCosts edgeCosts;  //Optional precomputed costs, null computes distances while searching
+    
+    private volatile MetricsSink metrics;
+
+    public PathFinder(Grid grid, Neighbourhood neighbourhood)
+    {
+        this.grid = grid;
+        this.neighbourhood = neighbourhood;
+        this.edgeCosts = null;
+    }
+
+    public PathFinder(EdgeCosts edgeCosts)
+    {
+        this.grid = edgeCosts.getGrid();
+        this.neighbourhood = edgeCosts.getNeighbourhood();
+        this.edgeCosts = edgeCosts;
+    }
+
+    public Grid getGrid()
+    {
+        return grid;
+    }
+
+    public EdgeCosts getEdgeCosts()
+    {
+        return edgeCosts;
+    }
+
+    //Every query's stats are passed to the sink once it finishes, null disables it
+    public void setMetricsSink(MetricsSink metrics)
+    {
+        this.metrics = metrics;
+    }
+
+    public PathResult find(PathQuery query)
+    {
+        return find(query, new SearchState(grid.size()));
+    }
+
+    //Reuses the given search state, which must not be shared with a running search.
+    //Throws CancellationException if the query's cancellation token fires while searching.
+    public PathResult find(PathQuery query, SearchState state)
+    {
+        return new Search(query, state).run();
+    }
+
+    private static final int CANCEL_CHECK_INTERVAL = 1024;  //Expansions between polls of the cancellation token
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+    private static final boolean CPU_TIME = THREADS.isCurrentThreadCpuTimeSupported() && THREADS.isThreadCpuTimeEnabled();
+    private static final boolean ALLOCATION = THREADS.isThreadAllocatedMemorySupported() && THREADS.isThreadAllocatedMemoryEnabled();
+
+    //One running query. Holds everything that changes while searching, so the PathFinder itself never does.
+    private class Search
+    {
+        private final SearchState state;
+        private final int startIndex;
+        private final int endIndex;
+        private final Heuristic heuristic;
+        private final double weight;
+        private final boolean bidirectional;
+        private final CancellationToken cancellation;
+
+        private SearchState reverseState;
+        private double meetingCost;
+        private int meetingIndex;
+
+        private int expanded;
+        private int touched;
+        private int decreaseKeys;
+        private int peakOpen;
+
+        Search(PathQuery query, SearchState state)
+        {
+            this.state = state;
+            startIndex = query.getStart();
+            endIndex = query.getEnd();
+            heuristic = query.getHeuristic();
+            weight = query.getWeight();
+            bidirectional = query.isBidirectional();
+            if(bidirectional && weight != 1)
+            {
+                throw new IllegalArgumentException("Bidirectional searches cannot be weighted: " + weight);
+            }
+            cancellation = query.getCancellationToken();
+        }
+
+        PathResult run()
+        {
+            long cpuBegin = CPU_TIME ? THREADS.getCurrentThreadCpuTime() : 0;
+            long allocatedBegin = ALLOCATION ? THREADS.getCurrentThreadAllocatedBytes() : 0;
+            long begin = System.nanoTime();
+            if(bidirectional)
+            {
+                findPathBidirectional();
+            }
+            else
+            {
+                findPath();
+            }
+            long wall = System.nanoTime() - begin;
+            long cpu = CPU_TIME ? THREADS.getCurrentThreadCpuTime() - cpuBegin : -1;
+            long allocated = ALLOCATION ? THREADS.getCurrentThreadAllocatedBytes() - allocatedBegin : -1;
+
+            SearchStats stats = new SearchStats(expanded, touched, decreaseKeys, peakOpen, wall, cpu, allocated);
+            MetricsSink sink = metrics;
+            if(sink != null)
+            {
+                sink.record(stats);
+            }
+
+            if(!state.isTouched(endIndex))
+            {
+                return new PathResult(new int[0], Double.POSITIVE_INFINITY, stats);   //End was never reached
+            }
+
+            int length = 1;
+            for(int i = endIndex; i != startIndex; i = state.getParent(i))
+            {
+                length++;
+            }
+
+            int[] path = new int[length];
+            int currentIndex = endIndex;
+            for(int i = length - 1; i >= 0; i--)
+            {
+                path[i] = currentIndex;
+                currentIndex = state.getParent(currentIndex);
+            }
+
+            return new PathResult(path, state.getG(endIndex), stats);
+        }
+
+        private void findPath()
+        {
+            state.reset();
+            IndexedMinHeap open = state.getOpen();  //Node ids keyed by F
+
+            state.update(startIndex, 0, startIndex);
+            open.add(startIndex, 0);
+
+            while(!open.isEmpty())
+            {
+                //Remove lowest F from open list
+                int currInd = open.poll();   //Current index in grid
+
+                if(currInd == endIndex)
+                {
+                    break;
+                }
+
+                state.close(currInd);
+                expand(currInd, state, null, endIndex, false);
+            }//End while open contains values
+        }
+
+        //Searches forward from the start and backward from the end until the best meeting point
+        //found so far can no longer be improved, then joins the two halves into the forward state.
+        private void findPathBidirectional()
+        {
+            reverseState = state.getReverse();
+            state.reset();
+            reverseState.reset();
+
+            IndexedMinHeap forwardOpen = state.getOpen();
+            IndexedMinHeap reverseOpen = reverseState.getOpen();
+
+            state.update(startIndex, 0, startIndex);
+            forwardOpen.add(startIndex, 0);
+            reverseState.update(endIndex, 0, endIndex);
+            reverseOpen.add(endIndex, 0);
+
+            meetingCost = startIndex == endIndex ? 0 : Double.POSITIVE_INFINITY;
+            meetingIndex = startIndex == endIndex ? startIndex : -1;
+
+            while(!forwardOpen.isEmpty() && !reverseOpen.isEmpty())
+            {
+                double forwardMin = forwardOpen.peekPriority();
+                double reverseMin = reverseOpen.peekPriority();
+
+                //With heuristics the keys are F values and either one reaching the best cost ends the search.
+                //Without them the keys are G values and no unexplored path can be shorter than their sum.
+                boolean done = heuristic != null
+                        ? Math.max(forwardMin, reverseMin) >= meetingCost
+                        : forwardMin + reverseMin >= meetingCost;
+                if(done)
+                {
+                    break;
+                }
+
+                if(forwardMin <= reverseMin)
+                {
+                    int currInd = forwardOpen.poll();
+                    state.close(currInd);
+                    expand(currInd, state, reverseState, endIndex, false);
+                }
+                else
+                {
+                    int currInd = reverseOpen.poll();
+                    reverseState.close(currInd);
+                    expand(currInd, reverseState, state, startIndex, true);
+                }
+            }
+
+            if(meetingIndex == -1)
+            {
+                return;     //The searches never met, so there is no path
+            }
+
+            //Point the forward parents along the reverse half of the path so it can be followed to the end
+            int currInd = meetingIndex;
+            while(currInd != endIndex)
+            {
+                int next = reverseState.getParent(currInd);
+                state.update(next, meetingCost - reverseState.getG(next), currInd);
+                currInd = next;
+            }
+        }
+
+        //Relaxes every edge out of currInd (or into it when reverse is set) in the given state.
+        //If another search is running in the opposite direction, also records where the two meet.
+        private void expand(int currInd, SearchState own, SearchState other, int target, boolean reverse)
+        {
+            //Open list size before currInd was removed from it
+            int openSize = state.getOpen().size() + (reverseState == null ? 0 : reverseState.getOpen().size()) + 1;
+            peakOpen = Math.max(peakOpen, openSize);
+            if(++expanded % CANCEL_CHECK_INTERVAL == 0 && cancellation.isCancelled())
+            {
+                throw new CancellationException("Search from " + startIndex + " to " + endIndex + " was cancelled");
+            }
+            IndexedMinHeap open = own.getOpen();
+            double currG = own.getG(currInd);
+
+            //Foreach adjacent
+            int col = grid.column(currInd);
+            int row = grid.row(currInd);
+            for(int dir = 0; dir < neighbourhood.size(); dir++)
+            {
+                int adj;
+                double dist;
+                if(edgeCosts != null)
+                {
+                    if(reverse)
+                    {
+                        //Infinite forward costs may also mean impassable, so check the grid's bounds directly
+                        if(neighbourhood.neighbour(grid, col, row, dir) == -1)
+                        {
+                            continue;
+                        }
+                        dist = edgeCosts.getReverseCost(currInd, dir);
+                    }
+                    else
+                    {
+                        dist = edgeCosts.getCost(currInd, dir);
+                    }
+                    if(dist == Double.POSITIVE_INFINITY)
+                    {
+                        continue;   //Adjacent is outside the grid or impassable, so it is never enqueued
+                    }
+                    adj = edgeCosts.getNeighbour(currInd, dir);
+                }
+                else
+                {
+                    adj = neighbourhood.neighbour(grid, col, row, dir);
+                    if(adj == -1)
+                    {
+                        continue;
+                    }
+                    dist = grid.distance(currInd, adj);
+                }
+
+                double adjG = currG + dist;
+
+                if(other != null && other.isTouched(adj) && adjG + other.getG(adj) < meetingCost)
+                {
+                    meetingCost = adjG + other.getG(adj);
+                    meetingIndex = adj;
+                }
+
+                if(!own.isClosed(adj))
+                {
+                    boolean openContainsAdj = open.contains(adj);
+                    if(openContainsAdj && adjG >= own.getG(adj))
+                    {
+                        continue;
+                    }
+
+                    //Heuristic, only calculated if the query has one
+                    double adjH = 0;
+                    if(heuristic != null)
+                    {
+                        adjH = weight * heuristic.estimate(adj, target);
+                    }
+
+                    if(!own.isTouched(adj))
+                    {
+                        touched++;
+                    }
+                    own.update(adj, adjG, currInd);
+                    if(!openContainsAdj)
+                    {
+                        //Add adjacent to open list
+                        open.add(adj, adjG + adjH);
+                    }
+                    else
+                    {
+                        //Found a shorter route to an adjacent already in the open list
+                        open.decreaseKey(adj, adjG + adjH);
+                        decreaseKeys++;
+                    }
+                }//End if adjacent not in closed list
+            }//End foreach adjacent
+        }
+    }
+}
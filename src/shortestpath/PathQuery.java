@@ -0,0 +1,84 @@
+package shortestpath;
+
+//A single path request between two grid points, and how to search for it
+public class PathQuery
+{
+    private final int start;
+    private final int end;
+
+    private Heuristic heuristic;    //Null searches without heuristics, giving exact Dijkstra
+    private double weight = 1;      //Multiplies the heuristic, trading path cost for speed
+    private boolean bidirectional;
+    private CancellationToken cancellation = CancellationToken.NONE;
+
+    public PathQuery(int start, int end)
+    {
+        this.start = start;
+        this.end = end;
+    }
+
+    public PathQuery(int start, int end, Heuristic heuristic)
+    {
+        this.start = start;
+        this.end = end;
+        this.heuristic = heuristic;
+    }
+
+    public int getStart()
+    {
+        return start;
+    }
+
+    public int getEnd()
+    {
+        return end;
+    }
+
+    public Heuristic getHeuristic()
+    {
+        return heuristic;
+    }
+
+    //The heuristic must never overestimate, or the path found may not be the shortest
+    public void setHeuristic(Heuristic heuristic)
+    {
+        this.heuristic = heuristic;
+    }
+
+    public double getWeight()
+    {
+        return weight;
+    }
+
+    //Weighted A*: estimates are multiplied by the weight, so fewer points are expanded and the path found
+    //costs at most weight times the shortest. 1 gives shortest paths. Not supported by bidirectional searches.
+    public void setWeight(double weight)
+    {
+        if(!(weight >= 1))
+        {
+            throw new IllegalArgumentException("Weight must be at least 1: " + weight);
+        }
+        this.weight = weight;
+    }
+
+    public boolean isBidirectional()
+    {
+        return bidirectional;
+    }
+
+    //Search from both the start and the end at once
+    public void setBidirectional(boolean bidirectional)
+    {
+        this.bidirectional = bidirectional;
+    }
+
+    public CancellationToken getCancellationToken()
+    {
+        return cancellation;
+    }
+
+    public void setCancellationToken(CancellationToken cancellation)
+    {
+        this.cancellation = cancellation;
+    }
+}
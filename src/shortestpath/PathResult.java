@@ -0,0 +1,37 @@
+package shortestpath;
+
+//Outcome of a single path query
+public class PathResult
+{
+    private final int[] path;   //Grid indices from the start to the end, empty if no path exists
+    private final double cost;
+    private final SearchStats stats;
+
+    public PathResult(int[] path, double cost, SearchStats stats)
+    {
+        this.path = path;
+        this.cost = cost;
+        this.stats = stats;
+    }
+
+    public boolean isFound()
+    {
+        return path.length > 0;
+    }
+
+    public int[] getPath()
+    {
+        return path;
+    }
+
+    //Total edge cost of the path, infinite if no path exists
+    public double getCost()
+    {
+        return cost;
+    }
+
+    public SearchStats getStats()
+    {
+        return stats;
+    }
+}
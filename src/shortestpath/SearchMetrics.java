@@ -0,0 +1,132 @@
+package shortestpath;
+
+import java.lang.management.ManagementFactory;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+//Aggregates the stats of every query into histograms, which can be read directly or through JMX
+public class SearchMetrics implements MetricsSink, SearchMetricsMBean
+{
+    private final Histogram expanded = new Histogram();
+    private final Histogram touched = new Histogram();
+    private final Histogram decreaseKeys = new Histogram();
+    private final Histogram peakOpen = new Histogram();
+    private final Histogram wallNanos = new Histogram();
+    private final Histogram cpuNanos = new Histogram();
+    private final Histogram allocatedBytes = new Histogram();
+
+    @Override
+    public void record(SearchStats stats)
+    {
+        expanded.record(stats.getExpanded());
+        touched.record(stats.getTouched());
+        decreaseKeys.record(stats.getDecreaseKeys());
+        peakOpen.record(stats.getPeakOpen());
+        wallNanos.record(stats.getWallNanos());
+        cpuNanos.record(stats.getCpuNanos());
+        allocatedBytes.record(stats.getAllocatedBytes());
+    }
+
+    //Registers these metrics with the platform MBean server under shortestpath:type=SearchMetrics,name=<name>
+    public void register(String name) throws JMException
+    {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName objectName = new ObjectName("shortestpath:type=SearchMetrics,name=" + ObjectName.quote(name));
+        if(server.isRegistered(objectName))
+        {
+            server.unregisterMBean(objectName);
+        }
+        server.registerMBean(this, objectName);
+    }
+
+    @Override
+    public long getQueries()
+    {
+        return expanded.getCount();
+    }
+
+    @Override
+    public double getMeanExpanded()
+    {
+        return expanded.getMean();
+    }
+
+    @Override
+    public long getP50Expanded()
+    {
+        return expanded.getPercentile(50);
+    }
+
+    @Override
+    public long getP99Expanded()
+    {
+        return expanded.getPercentile(99);
+    }
+
+    @Override
+    public long getMaxExpanded()
+    {
+        return expanded.getMax();
+    }
+
+    @Override
+    public double getMeanTouched()
+    {
+        return touched.getMean();
+    }
+
+    @Override
+    public double getMeanDecreaseKeys()
+    {
+        return decreaseKeys.getMean();
+    }
+
+    @Override
+    public long getMaxPeakOpen()
+    {
+        return peakOpen.getMax();
+    }
+
+    @Override
+    public double getMeanWallMillis()
+    {
+        return wallNanos.getMean() / 1e6;
+    }
+
+    @Override
+    public double getP50WallMillis()
+    {
+        return wallNanos.getPercentile(50) / 1e6;
+    }
+
+    @Override
+    public double getP99WallMillis()
+    {
+        return wallNanos.getPercentile(99) / 1e6;
+    }
+
+    @Override
+    public double getMeanCpuMillis()
+    {
+        return cpuNanos.getMean() / 1e6;
+    }
+
+    @Override
+    public double getMeanAllocatedBytes()
+    {
+        return allocatedBytes.getMean();
+    }
+
+    @Override
+    public void reset()
+    {
+        expanded.reset();
+        touched.reset();
+        decreaseKeys.reset();
+        peakOpen.reset();
+        wallNanos.reset();
+        cpuNanos.reset();
+        allocatedBytes.reset();
+    }
+}
@@ -0,0 +1,24 @@
+package shortestpath;
+
+//JMX view of SearchMetrics
+public interface SearchMetricsMBean
+{
+    long getQueries();
+
+    double getMeanExpanded();
+    long getP50Expanded();
+    long getP99Expanded();
+    long getMaxExpanded();
+
+    double getMeanTouched();
+    double getMeanDecreaseKeys();
+    long getMaxPeakOpen();
+
+    double getMeanWallMillis();
+    double getP50WallMillis();
+    double getP99WallMillis();
+    double getMeanCpuMillis();
+    double getMeanAllocatedBytes();
+
+    void reset();
+}
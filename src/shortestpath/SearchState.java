@@ -0,0 +1,99 @@
+package shortestpath;
+
+import java.util.Arrays;
+
+//Per node search state that can be reused between queries on the same grid.
+//Values are only valid for nodes stamped with the current generation, so starting
+//a new query is O(1) instead of clearing every array.
+public class SearchState
+{
+    private final int size;
+
+    private final int[] touched;    //Generation in which the node's G and parent were last set
+    private final int[] closed;     //Generation in which the node was last closed
+    private final double[] g;
+    private final int[] parents;
+    private final IndexedMinHeap open;
+    private SearchState reverse;    //State of the backward half of a bidirectional search
+
+    private int generation;
+
+    public SearchState(int size)
+    {
+        this.size = size;
+
+        touched = new int[size];
+        closed = new int[size];
+        g = new double[size];
+        parents = new int[size];
+        open = new IndexedMinHeap(size);
+
+        generation = 0;
+    }
+
+    //Start a new query, invalidating every value of the previous one
+    public void reset()
+    {
+        open.clear();
+        generation++;
+        if(generation == Integer.MAX_VALUE)
+        {
+            //Stamps would be ambiguous after overflow, so clear them once
+            Arrays.fill(touched, 0);
+            Arrays.fill(closed, 0);
+            generation = 1;
+        }
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    //Second state of the same size, created the first time a bidirectional search needs it
+    public SearchState getReverse()
+    {
+        if(reverse == null)
+        {
+            reverse = new SearchState(size);
+        }
+        return reverse;
+    }
+
+    public IndexedMinHeap getOpen()
+    {
+        return open;
+    }
+
+    public boolean isTouched(int node)
+    {
+        return touched[node] == generation;
+    }
+
+    public double getG(int node)
+    {
+        return touched[node] == generation ? g[node] : Double.POSITIVE_INFINITY;
+    }
+
+    public int getParent(int node)
+    {
+        return touched[node] == generation ? parents[node] : -1;
+    }
+
+    public void update(int node, double nodeG, int parent)
+    {
+        touched[node] = generation;
+        g[node] = nodeG;
+        parents[node] = parent;
+    }
+
+    public boolean isClosed(int node)
+    {
+        return closed[node] == generation;
+    }
+
+    public void close(int node)
+    {
+        closed[node] = generation;
+    }
+}
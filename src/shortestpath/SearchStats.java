@@ -0,0 +1,66 @@
+package shortestpath;
+
+//Measurements taken while answering one path query
+public class SearchStats
+{
+    private final int expanded;         //Points removed from the open list and expanded
+    private final int touched;          //Points given a G value for the first time
+    private final int decreaseKeys;     //Shorter routes found to points already in the open list
+    private final int peakOpen;         //Largest size of the open list
+    private final long wallNanos;       //Wall clock time spent searching
+    private final long cpuNanos;        //CPU time of the searching thread, -1 if not supported
+    private final long allocatedBytes;  //Bytes allocated by the searching thread, -1 if not supported
+
+    public SearchStats(int expanded, int touched, int decreaseKeys, int peakOpen, long wallNanos, long cpuNanos, long allocatedBytes)
+    {
+        this.expanded = expanded;
+        this.touched = touched;
+        this.decreaseKeys = decreaseKeys;
+        this.peakOpen = peakOpen;
+        this.wallNanos = wallNanos;
+        this.cpuNanos = cpuNanos;
+        this.allocatedBytes = allocatedBytes;
+    }
+
+    public int getExpanded()
+    {
+        return expanded;
+    }
+
+    public int getTouched()
+    {
+        return touched;
+    }
+
+    public int getDecreaseKeys()
+    {
+        return decreaseKeys;
+    }
+
+    public int getPeakOpen()
+    {
+        return peakOpen;
+    }
+
+    public long getWallNanos()
+    {
+        return wallNanos;
+    }
+
+    public long getCpuNanos()
+    {
+        return cpuNanos;
+    }
+
+    public long getAllocatedBytes()
+    {
+        return allocatedBytes;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%d expanded, %d touched, %d decrease-key, peak open %d, %.2f ms wall, %.2f ms cpu, %d bytes",
+                expanded, touched, decreaseKeys, peakOpen, wallNanos / 1e6, cpuNanos / 1e6, allocatedBytes);
+    }
+}
@@ -1,7 +1,9 @@
 package shortestpath;
 
+import java.io.File;
 import java.util.ArrayList;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.DoubleProperty;
 import javafx.beans.property.SimpleBooleanProperty;
@@ -20,6 +22,7 @@ import javafx.scene.shape.CullFace;
 import javafx.scene.shape.DrawMode;
 import javafx.scene.shape.MeshView;
 import javafx.scene.shape.Sphere;
+import javafx.scene.text.Text;
 import javafx.scene.transform.Rotate;
 import javafx.scene.transform.Transform;
 import javafx.stage.Stage;
@@ -27,7 +30,22 @@ import javafx.stage.Stage;
 public class ShortestPathDriver extends Application
 {
     private Group group;
-    private ArrayList<Double[]> grid;
+    private Grid grid;
+    private EdgeCosts edgeCosts;        //Distance costs, which the landmarks are selected over
+    private Landmarks landmarks;
+    private boolean vehicleCosts;       //Search with slope limits and uphill penalties instead of distance alone
+    private PathFinder finder;
+    private PathCache cache;
+    private Heuristic straightLine;     //One instance, so cached results for it can be found again
+    private final double[] WEIGHTS = {1, 1.5, 2, 3};   //Heuristic weights the straight line search cycles through
+    private int weightIndex = 0;
+    private AnytimePathFinder anytimeFinder;   //Refines weighted paths towards the shortest while time allows
+    private final long ANYTIME_MILLIS = 2000;  //Time a weighted search keeps refining its path
+    private Text anytimeLabel;          //Label of the blue path's latest refinement
+    private AnyAnglePathFinder anyAngleFinder;
+    private boolean showAnyAngle;       //Also search for an any-angle path, drawn in yellow
+    private final double ANY_ANGLE_MARKER_STEP = 0.25;     //Distance between markers along an any-angle path
+    private SearchMetrics metrics = new SearchMetrics();   //Also published through JMX
     
     //x and y used in mouse movement deltas
     private double x;
@@ -40,12 +58,25 @@ public class ShortestPathDriver extends Application
     private final double DRAG_SENS = 0.01;
     private final int SIZE = 50;
     private final double POINT_DENSITY = 6;    //The amount of points per square area unit
+    private final int LANDMARK_COUNT = 8;      //Landmarks used by the exact search's heuristic
+    private final int PATH_CACHE_SIZE = 256;   //Paths remembered for repeated queries
+    private final int PATH_TREE_CACHE_SIZE = 4;    //Goals remembered with a tree of paths to them from anywhere
+    private final double VEHICLE_MAX_SLOPE = 1.5;      //Steepest rise over run a vehicle can take
+    private final double VEHICLE_UPHILL_PENALTY = 0.5; //Extra cost per unit of slope climbed by a vehicle
     
-    //Variables for the spheres created to show paths
-    private ArrayList<Sphere> pathSpheres;
+    //Markers showing each path, one mesh per path
+    private MarkerMesh heuristicPath;
+    private MarkerMesh exactPath;
+    private MarkerMesh anyAnglePath;
+    private ArrayList<AStar> searches = new ArrayList<>();     //Searches that may still be running
     private DoubleProperty pathSphereRadius = new SimpleDoubleProperty(0.15);
     private double pathSphereDelta = 0.001;
     
+    //Search stats shown beside the end of each path
+    private ArrayList<Text> pathLabels = new ArrayList<>();
+    private final double LABEL_SCALE = 0.04;
+    private final double LABEL_SPACING = 0.8;
+    
     //Variables concerning starting and ending points.
     private int startIndex = -1;
     private int endIndex = -1;
@@ -55,8 +86,8 @@ public class ShortestPathDriver extends Application
     private Sphere start;
     private Sphere end;
     
-    //Discrete points
-    ArrayList<Sphere> discreteGrid;
+    //Discrete points, drawn as one mesh
+    private MarkerMesh discreteGrid;
     private BooleanProperty showDiscrete = new SimpleBooleanProperty(false);
     
     @Override
@@ -68,9 +99,6 @@ public class ShortestPathDriver extends Application
         primaryStage.setScene(scene);
         primaryStage.setTitle("AStar Algorithm Simulation, Z for controls");
         
-        //Initialize ArrayList containing spheres that create the paths
-        pathSpheres = new ArrayList<>();
-        
         //Initialize start and end spheres
         PhongMaterial sMat = new PhongMaterial(Color.GREEN.brighter());
         start = new Sphere();
@@ -94,29 +122,56 @@ public class ShortestPathDriver extends Application
         camera.setFarClip(1000);
         scene.setCamera(camera);
 
-        //Create terrain
-        TerrainGenerator generator = new TerrainGenerator(SIZE);
-        grid = generator.getGrid(POINT_DENSITY);
-        
-        //Create discretized grid
-        discreteGrid = new ArrayList<>();
-        for(int i = 0; i < grid.size(); i++)
+        //Create terrain, or load it with its search tables if started with --terrain=<file>.
+        //A file that does not exist yet is written with the generated terrain for the next run.
+        String terrainPath = getParameters().getNamed().get("terrain");
+        File terrainFile = terrainPath == null ? null : new File(terrainPath);
+        if(terrainFile != null && terrainFile.exists())
         {
-            Double[] coords = grid.get(i);
-
-            Sphere s = new Sphere(0.05);
-            s.setTranslateX(coords[0]);
-            s.setTranslateY(coords[1]);
-            s.setTranslateZ(coords[2]);
-            s.visibleProperty().bind(showDiscrete);
-            
-            group.getChildren().add(s);
+            TerrainFile loaded = TerrainFile.read(terrainFile);
+            grid = loaded.getGrid();
+            edgeCosts = loaded.getEdgeCosts() != null ? loaded.getEdgeCosts() : EdgeCosts.compute(grid, Neighbourhood.EIGHT);
+            landmarks = loaded.getLandmarks() != null ? loaded.getLandmarks() : Landmarks.select(edgeCosts, LANDMARK_COUNT);
         }
+        else
+        {
+            TerrainGenerator generator = new TerrainGenerator(SIZE);
+            grid = generator.getGrid(POINT_DENSITY);
+            edgeCosts = EdgeCosts.compute(grid, Neighbourhood.EIGHT);
+            landmarks = Landmarks.select(edgeCosts, LANDMARK_COUNT);
+            if(terrainFile != null)
+            {
+                TerrainFile.write(terrainFile, grid, edgeCosts, landmarks);
+            }
+        }
+        anyAngleFinder = new AnyAnglePathFinder(grid, Neighbourhood.EIGHT);
+        straightLine = grid::distance;
+        searchWith(edgeCosts);
+        metrics.register("driver");
         
+        //Create discretized grid
+        discreteGrid = new MarkerMesh(grid, 0.05);
+        discreteGrid.setAllMarkers();
+        discreteGrid.setMaterial(new PhongMaterial(Color.WHITE));
+        discreteGrid.visibleProperty().bind(showDiscrete);
+        group.getChildren().add(discreteGrid);
         
+        //Create path markers, resized in place when the path sphere radius changes
+        heuristicPath = new MarkerMesh(grid, pathSphereRadius.get());
+        heuristicPath.setMaterial(new PhongMaterial(Color.BLUE));
+        exactPath = new MarkerMesh(grid, pathSphereRadius.get());
+        exactPath.setMaterial(new PhongMaterial(Color.GREEN));
+        anyAnglePath = new MarkerMesh(grid, pathSphereRadius.get());
+        anyAnglePath.setMaterial(new PhongMaterial(Color.YELLOW));
+        group.getChildren().addAll(heuristicPath, exactPath, anyAnglePath);
+        pathSphereRadius.addListener((obs, oldRadius, newRadius) ->
+        {
+            heuristicPath.setRadius(newRadius.doubleValue());
+            exactPath.setRadius(newRadius.doubleValue());
+            anyAnglePath.setRadius(newRadius.doubleValue());
+        });
         
-        
-        MeshView obj = new MeshView(generator.getMesh());
+        MeshView obj = new MeshView(TerrainMesh.create(meshHeights(grid)));
         obj.setCullFace(CullFace.NONE);
         
         PhongMaterial meshMat = new PhongMaterial(Color.ORANGE);
@@ -183,6 +238,37 @@ public class ShortestPathDriver extends Application
                     //Show discretized points
                     showDiscrete.set(!showDiscrete.getValue());
                     break;
+                case E:
+                    //Weight the straight line search's heuristic, trading path length for speed. Weighted paths
+                    //are then refined towards the shortest for a while, redrawn each time one improves.
+                    weightIndex = (weightIndex + 1) % WEIGHTS.length;
+                    primaryStage.setTitle("AStar Algorithm Simulation, Z for controls, heuristic weight " + WEIGHTS[weightIndex]);
+                    break;
+                case C:
+                    //Toggle vehicle costs, which avoid steep slopes and penalise climbing
+                    vehicleCosts = !vehicleCosts;
+                    if(vehicleCosts)
+                    {
+                        TerrainCostModel model = new TerrainCostModel(grid);
+                        model.setMaxSlope(VEHICLE_MAX_SLOPE);
+                        model.setUphillPenalty(VEHICLE_UPHILL_PENALTY);
+                        searchWith(EdgeCosts.compute(grid, Neighbourhood.EIGHT, model));
+                        anyAngleFinder = new AnyAnglePathFinder(grid, Neighbourhood.EIGHT, model);
+                    }
+                    else
+                    {
+                        searchWith(edgeCosts);
+                        anyAngleFinder = new AnyAnglePathFinder(grid, Neighbourhood.EIGHT);
+                    }
+                    break;
+                case T:
+                    //Toggle the any-angle path
+                    showAnyAngle = !showAnyAngle;
+                    if(!showAnyAngle)
+                    {
+                        anyAnglePath.clear();
+                    }
+                    break;
                 case Z:
                     Alert alert = new Alert(AlertType.INFORMATION);
                     alert.setTitle("Controls");
@@ -194,6 +280,9 @@ public class ShortestPathDriver extends Application
                             ">Enter\n\t - Find paths. Green is shortest path, Blue is shortest path using heuristics (A*)\n" +
                             ">Right Click Drag\n\t - X controls path sphere size, Y controls starting and ending sphere size\n\n" + 
                             ">X\n\t - Toggle discretized grid.\n" + 
+                            ">E\n\t - Cycle the blue path's heuristic weight. Above 1 it is found faster but may be up to that many times longer, then refined towards the shortest for " + ANYTIME_MILLIS / 1000 + " s.\n" + 
+                            ">C\n\t - Toggle vehicle costs. Paths then avoid slopes steeper than " + VEHICLE_MAX_SLOPE + " and prefer not to climb.\n" + 
+                            ">T\n\t - Toggle the any-angle path, in yellow. It cuts straight across the surface instead of following the grid.\n" + 
                             "Note: Path found without heuristics will take longer to create.\n" +
                             "Note: Path is found using a discretized grid. It will be as accurate as that grid created, which can be more accurate than the mesh."
                     );
@@ -220,6 +309,8 @@ public class ShortestPathDriver extends Application
                     //Set start and end points
                     if(startIndex != -1 && endIndex != -1)
                     {
+                        //Paths being searched no longer match the points shown
+                        cancelSearches();
                         if(removeStart)
                         {
                             startIndex = -1;
@@ -236,21 +327,20 @@ public class ShortestPathDriver extends Application
                     {
                         //Set start
                         int ind = findClosest(grid, me.getX(), me.getY(), me.getZ());
-                        Double[] xyz = grid.get(ind);
                         if(startIndex == -1 && endIndex == -1 || startIndex == -1 && endIndex != -1)
                         {
-                            start.setTranslateX(xyz[0]);
-                            start.setTranslateY(xyz[1]);
-                            start.setTranslateZ(xyz[2]);
+                            start.setTranslateX(grid.getX(ind));
+                            start.setTranslateY(grid.getY(ind));
+                            start.setTranslateZ(grid.getZ(ind));
                             startIndex = ind;
                             start.setVisible(true);
                         }
                         else
                         {
                             //Set end
-                            end.setTranslateX(xyz[0]);
-                            end.setTranslateY(xyz[1]);
-                            end.setTranslateZ(xyz[2]);
+                            end.setTranslateX(grid.getX(ind));
+                            end.setTranslateY(grid.getY(ind));
+                            end.setTranslateZ(grid.getZ(ind));
                             endIndex = ind;
                             end.setVisible(true);
                         }
@@ -290,101 +380,148 @@ public class ShortestPathDriver extends Application
         primaryStage.show();
     }
     
-    private void drawPoints(boolean bool)
-    {
-        //Draw the discretized grid
-        for(int i = 0; i < grid.size(); i++)
-        {
-            Double[] coords = grid.get(i);
-
-            Sphere s = new Sphere(0.05);
-            s.setTranslateX(coords[0]);
-            s.setTranslateY(coords[1]);
-            s.setTranslateZ(coords[2]);
-            
-            group.getChildren().add(s);
-        }
-    }
-    
     //Find paths using threads to avoid program from stopping.
     private void findPaths()
     {
-        group.getChildren().removeAll(pathSpheres);
+        cancelSearches();
+        heuristicPath.clear();
+        exactPath.clear();
+        anyAnglePath.clear();
+        group.getChildren().removeAll(pathLabels);
+        pathLabels.clear();
         
         //Draw path with heuristics
-        AStar aStarHeuristics = new AStar(grid, startIndex, endIndex, true);
-        aStarHeuristics.setOnSucceeded((ev) -> 
+        PathQuery heuristicQuery = new PathQuery(startIndex, endIndex, straightLine);
+        heuristicQuery.setWeight(WEIGHTS[weightIndex]);
+        if(heuristicQuery.getWeight() == 1)
         {
-            ArrayList<Double[]> pathHeur = aStarHeuristics.getPath();
-            for(int i = 0; i < pathHeur.size(); i++)
+            AStar aStarHeuristics = new AStar(cache, heuristicQuery);
+            aStarHeuristics.setOnSucceeded((ev) -> 
             {
-                Double[] coords = pathHeur.get(i);
-
-                Sphere s = new Sphere();
-                s.radiusProperty().bind(pathSphereRadius);
-                s.setTranslateX(coords[0]);
-                s.setTranslateY(coords[1]);
-                s.setTranslateZ(coords[2]);
-
-                pathSpheres.add(s);
-
-                PhongMaterial mat2 = new PhongMaterial();
-                mat2.setDiffuseColor(Color.BLUE);
-                s.setMaterial(mat2);
-
-                group.getChildren().add(s);
-            }
-        });
-        new Thread(aStarHeuristics).start();
+                PathResult resultHeur = aStarHeuristics.getValue();
+                addPathLabel(resultHeur, Color.BLUE, 1);
+                heuristicPath.setMarkers(resultHeur.getPath());
+            });
+            startSearch(aStarHeuristics);
+        }
+        else
+        {
+            //The first path is the weighted one, and each better path replaces it with a tighter bound
+            anytimeLabel = null;
+            AStar anytime = new AStar(anytimeFinder, heuristicQuery, ANYTIME_MILLIS, (result, bound) ->
+                Platform.runLater(() ->
+                {
+                    if(heuristicQuery.getCancellationToken().isCancelled())
+                    {
+                        return;
+                    }
+                    if(anytimeLabel != null)
+                    {
+                        group.getChildren().remove(anytimeLabel);
+                        pathLabels.remove(anytimeLabel);
+                    }
+                    anytimeLabel = addPathLabel(result, Color.BLUE, 1);
+                    anytimeLabel.setText(anytimeLabel.getText() + String.format(", within %.2fx of shortest", bound));
+                    heuristicPath.setMarkers(result.getPath());
+                }));
+            startSearch(anytime);
+        }
         
         //Draw path without heuristics (Exact shortest path, in terms of the discretized grid)
-        AStar aStarWOHeuristics = new AStar(grid, startIndex, endIndex, false);
+        //Searched from both ends at once, guided by landmark estimates. They never overestimate, so they speed
+        //this up without changing the path
+        PathQuery exactQuery = new PathQuery(startIndex, endIndex, landmarks);
+        exactQuery.setBidirectional(true);
+        AStar aStarWOHeuristics = new AStar(cache, exactQuery);
         aStarWOHeuristics.setOnSucceeded((ev) ->
         {
-            ArrayList<Double[]> pathWOHeur = aStarWOHeuristics.getPath();
-            for(int i = 0; i < pathWOHeur.size(); i++)
-            {
-                Double[] coords = pathWOHeur.get(i);
-
-                Sphere s = new Sphere();
-                s.radiusProperty().bind(pathSphereRadius);
-                s.setTranslateX(coords[0]);
-                s.setTranslateY(coords[1]);
-                s.setTranslateZ(coords[2]);
-
-                pathSpheres.add(s);
-
-                PhongMaterial mat2 = new PhongMaterial();
-                mat2.setDiffuseColor(Color.GREEN);
-                s.setMaterial(mat2);
-
-                group.getChildren().add(s);
-            }
+            PathResult resultWOHeur = aStarWOHeuristics.getValue();
+            addPathLabel(resultWOHeur, Color.GREEN, 2);
+            exactPath.setMarkers(resultWOHeur.getPath());
         });
-        new Thread(aStarWOHeuristics).start();
+        startSearch(aStarWOHeuristics);
+        
+        //Draw any-angle path, with markers along its straight lines as it only keeps the points where it turns
+        if(showAnyAngle)
+        {
+            PathQuery anyAngleQuery = new PathQuery(startIndex, endIndex);
+            AnyAnglePathFinder finder = anyAngleFinder;
+            AStar anyAngle = new AStar(finder, anyAngleQuery);
+            anyAngle.setOnSucceeded((ev) ->
+            {
+                PathResult resultAnyAngle = anyAngle.getValue();
+                addPathLabel(resultAnyAngle, Color.YELLOW, 3);
+                anyAnglePath.setPositions(finder.trace(resultAnyAngle.getPath(), ANY_ANGLE_MARKER_STEP));
+            });
+            startSearch(anyAngle);
+        }
     }
     
-    //Return index of closest point in ArrayList to (x1,y1,z1)
-    public int findClosest(ArrayList<Double[]> g, double x1, double y1, double z1)
+    //Searches from now on use these costs. Landmarks stay as they are, as costs are never below distance.
+    private void searchWith(EdgeCosts costs)
     {
-        double min = Integer.MAX_VALUE;
-        int minIndex = 0;
-        for(int i = 0; i < g.size(); i++)
+        finder = new PathFinder(costs);
+        cache = new PathCache(finder, PATH_CACHE_SIZE, PATH_TREE_CACHE_SIZE);
+        anytimeFinder = new AnytimePathFinder(costs);
+        finder.setMetricsSink(metrics);
+    }
+    
+    //Show a path's cost and search stats on the given line beside the end point
+    private Text addPathLabel(PathResult result, Color color, int line)
+    {
+        SearchStats stats = result.getStats();
+        Text label = new Text(String.format("cost %.2f, %d expanded, %d touched, %d decrease-key, peak open %d, %.1f ms",
+                result.getCost(), stats.getExpanded(), stats.getTouched(), stats.getDecreaseKeys(),
+                stats.getPeakOpen(), stats.getWallNanos() / 1e6));
+        label.setFill(color);
+        label.setScaleX(LABEL_SCALE);
+        label.setScaleY(LABEL_SCALE);
+        label.setTranslateX(grid.getX(endIndex));
+        label.setTranslateY(grid.getY(endIndex) + line * LABEL_SPACING);
+        label.setTranslateZ(grid.getZ(endIndex));
+        
+        pathLabels.add(label);
+        group.getChildren().add(label);
+        return label;
+    }
+    
+    private void startSearch(AStar search)
+    {
+        searches.add(search);
+        Thread thread = new Thread(search);
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    //Stop searches superseded by a new query, so they do not keep using CPU time
+    private void cancelSearches()
+    {
+        for(AStar search : searches)
         {
-            Double[] coord = g.get(i);
-            double dx = coord[0] - x1;
-            double dy = coord[1] - y1;
-            double dz = coord[2] - z1;
-            double dist = Math.sqrt(dx*dx + dy*dy + dz*dz);
-            
-            if(dist < min)
+            search.cancel();
+        }
+        searches.clear();
+    }
+    
+    //Heights of the grid at every whole unit of x and y, one mesh vertex each
+    private float[][] meshHeights(Grid g)
+    {
+        int side = (int)Math.round((g.getWidth() - 1) * g.getSpacing()) + 1;
+        float[][] heights = new float[side][side];
+        for(int x = 0; x < side; x++)
+        {
+            for(int y = 0; y < side; y++)
             {
-                min = dist;
-                minIndex = i;
+                heights[x][y] = (float)g.getZ(g.nearest(x, y));
             }
         }
-        
-        return minIndex;
+        return heights;
+    }
+    
+    //Return index of closest point in grid to (x1,y1,z1)
+    public int findClosest(Grid g, double x1, double y1, double z1)
+    {
+        return g.nearest(x1, y1, z1);
     }
     
     public static void main(String[] args)
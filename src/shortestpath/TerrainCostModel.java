@@ -0,0 +1,86 @@
+package shortestpath;
+
+import java.util.Arrays;
+
+//Costs for a vehicle on the terrain. Moves steeper than the maximum slope either way are impassable. Uphill
+//moves cost more in proportion to their slope, and each point has a cost multiplier of at least 1, infinite
+//for no-go points, with a move costing its distance times the mean multiplier of its two ends.
+//Compile it with EdgeCosts.compute, after which changing the model has no effect on those costs. Heights are
+//read from the grid passed in, so it may also be used with a copy of its grid, as IncrementalPathFinder keeps.
+public class TerrainCostModel implements CostModel
+{
+    private final int width;
+    private final int height;
+    private final float[] multipliers;      //Cost multiplier of each point, infinite where no-go
+    private double maxSlope = Double.POSITIVE_INFINITY;     //Steepest rise over run a move may take
+    private double uphillPenalty = 0;       //Extra cost per unit of slope climbed, as a fraction of the distance
+
+    public TerrainCostModel(Grid grid)
+    {
+        width = grid.getWidth();
+        height = grid.getHeight();
+        multipliers = new float[grid.size()];
+        Arrays.fill(multipliers, 1);
+    }
+
+    public void setMaxSlope(double maxSlope)
+    {
+        if(!(maxSlope >= 0))
+        {
+            throw new IllegalArgumentException("Maximum slope must not be negative: " + maxSlope);
+        }
+        this.maxSlope = maxSlope;
+    }
+
+    public void setUphillPenalty(double uphillPenalty)
+    {
+        if(!(uphillPenalty >= 0))
+        {
+            throw new IllegalArgumentException("Uphill penalty must not be negative: " + uphillPenalty);
+        }
+        this.uphillPenalty = uphillPenalty;
+    }
+
+    //Sets the cost multipliers of the given points, which must be at least 1. Infinity makes a point no-go.
+    public void setMultipliers(int[] nodes, float[] values)
+    {
+        for(int i = 0; i < nodes.length; i++)
+        {
+            if(!(values[i] >= 1))
+            {
+                throw new IllegalArgumentException("Cost multiplier must be at least 1: " + values[i]);
+            }
+            multipliers[nodes[i]] = values[i];
+        }
+    }
+
+    public float getMultiplier(int node)
+    {
+        return multipliers[node];
+    }
+
+    @Override
+    public double cost(Grid grid, int from, int to, double distance)
+    {
+        if(grid.getWidth() != width || grid.getHeight() != height)
+        {
+            throw new IllegalArgumentException("Cost model was made for a grid of a different size");
+        }
+
+        double multiplier = ((double)multipliers[from] + multipliers[to]) / 2;
+        if(multiplier == Double.POSITIVE_INFINITY)
+        {
+            return Double.POSITIVE_INFINITY;
+        }
+
+        double dx = grid.getX(to) - grid.getX(from);
+        double dy = grid.getY(to) - grid.getY(from);
+        double rise = grid.getZ(to) - grid.getZ(from);
+        double slope = rise / Math.sqrt(dx*dx + dy*dy);
+        if(Math.abs(slope) > maxSlope)
+        {
+            return Double.POSITIVE_INFINITY;
+        }
+        return distance * multiplier * (1 + uphillPenalty * Math.max(0, slope));
+    }
+}
@@ -0,0 +1,269 @@
+package shortestpath;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+//Binary file holding a grid's heights with its optional edge costs and landmark tables, so terrain and
+//preprocessing can be saved once and loaded on later runs. Tables are written through one reused buffer and
+//forced to disk once at the end, and read by bulk copies through memory mapped chunks, so loading runs at the
+//speed of the disk, or of memory once the page cache holds the file. Searches work on plain arrays, so each
+//process loads its own copy.
+//
+//Layout, little endian:
+//  int magic, int version, int width, int height, double spacing,
+//  int connectivity (0 without edge costs), int landmark count (0 without landmarks), int padding
+//  double[width * height] heights, column by column like Grid
+//  float[width * height * connectivity] edge costs
+//  int[landmark count] landmark nodes, then float[width * height] distances for each landmark
+//Point coordinates are not stored, as the grid derives them from its size and spacing.
+public class TerrainFile
+{
+    private static final int MAGIC = 0x53505446;   //"SPTF"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 40;
+    private static final int CHUNK_BYTES = 1 << 28;    //Most mapped at once, well below the 2 GB limit of one mapping
+    private static final int WRITE_BUFFER_BYTES = 1 << 20;
+
+    private final Grid grid;
+    private final EdgeCosts edgeCosts;
+    private final Landmarks landmarks;
+
+    private TerrainFile(Grid grid, EdgeCosts edgeCosts, Landmarks landmarks)
+    {
+        this.grid = grid;
+        this.edgeCosts = edgeCosts;
+        this.landmarks = landmarks;
+    }
+
+    public Grid getGrid()
+    {
+        return grid;
+    }
+
+    //Null if the file has no edge costs
+    public EdgeCosts getEdgeCosts()
+    {
+        return edgeCosts;
+    }
+
+    //Null if the file has no landmarks
+    public Landmarks getLandmarks()
+    {
+        return landmarks;
+    }
+
+    //Writes the grid, and the edge costs and landmarks if they are not null. Both must belong to the grid.
+    public static void write(File file, Grid grid, EdgeCosts edgeCosts, Landmarks landmarks) throws IOException
+    {
+        int size = grid.size();
+        int connectivity = edgeCosts == null ? 0 : edgeCosts.directions();
+        int landmarkCount = landmarks == null ? 0 : landmarks.getNodes().length;
+
+        try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC);
+            buffer.putInt(VERSION);
+            buffer.putInt(grid.getWidth());
+            buffer.putInt(grid.getHeight());
+            buffer.putDouble(grid.getSpacing());
+            buffer.putInt(connectivity);
+            buffer.putInt(landmarkCount);
+            buffer.putInt(0);
+            buffer.position(HEADER_BYTES);
+            buffer.flip();
+            long offset = writeBuffer(channel, buffer, 0);
+
+            offset = writeDoubles(channel, buffer, offset, grid.getHeights());
+            if(edgeCosts != null)
+            {
+                offset = writeFloats(channel, buffer, offset, edgeCosts.getCosts());
+            }
+            if(landmarks != null)
+            {
+                offset = writeInts(channel, buffer, offset, landmarks.getNodes());
+                for(float[] table : landmarks.getDistances())
+                {
+                    offset = writeFloats(channel, buffer, offset, table);
+                }
+            }
+            channel.force(false);
+        }
+    }
+
+    public static TerrainFile read(File file) throws IOException
+    {
+        try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+        {
+            if(channel.size() < HEADER_BYTES)
+            {
+                throw new IOException("Not a terrain file: " + file);
+            }
+            MappedByteBuffer header = map(channel, FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+
+            if(header.getInt() != MAGIC)
+            {
+                throw new IOException("Not a terrain file: " + file);
+            }
+            int version = header.getInt();
+            if(version != VERSION)
+            {
+                throw new IOException("Unsupported terrain file version " + version + ": " + file);
+            }
+            int width = header.getInt();
+            int height = header.getInt();
+            double spacing = header.getDouble();
+            int connectivity = header.getInt();
+            int landmarkCount = header.getInt();
+
+            long points = (long)width * height;
+            long bytes = HEADER_BYTES + 8L * points + 4L * points * connectivity + 4L * landmarkCount * (points + 1);
+            if(width <= 0 || height <= 0 || connectivity < 0 || landmarkCount < 0 || channel.size() != bytes)
+            {
+                throw new IOException("Corrupt terrain file: " + file);
+            }
+            if(points * Math.max(1, connectivity) > Integer.MAX_VALUE)
+            {
+                throw new IOException("Terrain is too large to load into arrays: " + file);
+            }
+            int size = (int)points;
+
+            long offset = HEADER_BYTES;
+            double[] heights = new double[size];
+            offset = readDoubles(channel, offset, heights);
+            Grid grid = new Grid(width, height, spacing, heights);
+
+            EdgeCosts edgeCosts = null;
+            if(connectivity != 0)
+            {
+                Neighbourhood neighbourhood = neighbourhood(connectivity, file);
+                float[] costs = new float[size * connectivity];
+                offset = readFloats(channel, offset, costs);
+                edgeCosts = new EdgeCosts(grid, neighbourhood, costs);
+            }
+
+            Landmarks landmarks = null;
+            if(landmarkCount != 0)
+            {
+                int[] nodes = new int[landmarkCount];
+                map(channel, FileChannel.MapMode.READ_ONLY, offset, 4L * landmarkCount).asIntBuffer().get(nodes);
+                offset += 4L * landmarkCount;
+                float[][] distances = new float[landmarkCount][size];
+                for(float[] table : distances)
+                {
+                    offset = readFloats(channel, offset, table);
+                }
+                landmarks = new Landmarks(nodes, distances);
+            }
+
+            return new TerrainFile(grid, edgeCosts, landmarks);
+        }
+    }
+
+    private static MappedByteBuffer map(FileChannel channel, FileChannel.MapMode mode, long offset, long bytes) throws IOException
+    {
+        MappedByteBuffer buffer = channel.map(mode, offset, bytes);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        return buffer;
+    }
+
+    //Each of these copies an array to or from the file at offset, a buffer or chunk at a time, returning the
+    //offset after it
+
+    private static long writeDoubles(FileChannel channel, ByteBuffer buffer, long offset, double[] values) throws IOException
+    {
+        for(int done = 0; done < values.length; )
+        {
+            int count = Math.min(values.length - done, buffer.capacity() / 8);
+            buffer.clear();
+            buffer.asDoubleBuffer().put(values, done, count);
+            buffer.limit(8 * count);
+            offset = writeBuffer(channel, buffer, offset);
+            done += count;
+        }
+        return offset;
+    }
+
+    private static long writeFloats(FileChannel channel, ByteBuffer buffer, long offset, float[] values) throws IOException
+    {
+        for(int done = 0; done < values.length; )
+        {
+            int count = Math.min(values.length - done, buffer.capacity() / 4);
+            buffer.clear();
+            buffer.asFloatBuffer().put(values, done, count);
+            buffer.limit(4 * count);
+            offset = writeBuffer(channel, buffer, offset);
+            done += count;
+        }
+        return offset;
+    }
+
+    private static long writeInts(FileChannel channel, ByteBuffer buffer, long offset, int[] values) throws IOException
+    {
+        for(int done = 0; done < values.length; )
+        {
+            int count = Math.min(values.length - done, buffer.capacity() / 4);
+            buffer.clear();
+            buffer.asIntBuffer().put(values, done, count);
+            buffer.limit(4 * count);
+            offset = writeBuffer(channel, buffer, offset);
+            done += count;
+        }
+        return offset;
+    }
+
+    //Writes what remains of the buffer at offset, returning the offset after it
+    private static long writeBuffer(FileChannel channel, ByteBuffer buffer, long offset) throws IOException
+    {
+        while(buffer.hasRemaining())
+        {
+            offset += channel.write(buffer, offset);
+        }
+        return offset;
+    }
+
+    private static long readDoubles(FileChannel channel, long offset, double[] values) throws IOException
+    {
+        for(int done = 0; done < values.length; )
+        {
+            int count = Math.min(values.length - done, CHUNK_BYTES / 8);
+            map(channel, FileChannel.MapMode.READ_ONLY, offset, 8L * count).asDoubleBuffer().get(values, done, count);
+            offset += 8L * count;
+            done += count;
+        }
+        return offset;
+    }
+
+    private static long readFloats(FileChannel channel, long offset, float[] values) throws IOException
+    {
+        for(int done = 0; done < values.length; )
+        {
+            int count = Math.min(values.length - done, CHUNK_BYTES / 4);
+            map(channel, FileChannel.MapMode.READ_ONLY, offset, 4L * count).asFloatBuffer().get(values, done, count);
+            offset += 4L * count;
+            done += count;
+        }
+        return offset;
+    }
+
+    private static Neighbourhood neighbourhood(int connectivity, File file) throws IOException
+    {
+        switch(connectivity)
+        {
+            case 4:
+                return Neighbourhood.FOUR;
+            case 8:
+                return Neighbourhood.EIGHT;
+            case 16:
+                return Neighbourhood.SIXTEEN;
+            default:
+                throw new IOException("Corrupt terrain file, connectivity " + connectivity + ": " + file);
+        }
+    }
+}
@@ -1,105 +1,90 @@
 package shortestpath;
 
-import java.util.ArrayList;
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableFloatArray;
-import javafx.collections.ObservableIntegerArray;
-import javafx.scene.shape.TriangleMesh;
+import java.util.Random;
 
 public class TerrainGenerator 
 {
     private int width;
-    private TriangleMesh mesh;
     private float[][] heightMap;
+    private HeightField field;     //Last field generated, which grids and the height map are made from
+    private double fieldDensity;
     
-    private final int noiseSize = 100;
-    private final int MULT = 20;
-    private final float coordDivisor = 15f;
+    //Shared with TiledTerrain, so tiles of the same seed and density look like a generated grid
+    static final int noiseSize = 100;
+    static final int MULT = 20;
+    static final float coordDivisor = 15f;
     
+    private final long seed;
+    private final int octaves;     //Noise octaves, more give rougher and more realistic terrain
     private Noise n;
     
     public TerrainGenerator(int width)
+    {
+        this(width, new Random().nextLong());
+    }
+    
+    //The same width and seed always give the same terrain
+    public TerrainGenerator(int width, long seed)
+    {
+        this(width, seed, 1);
+    }
+    
+    public TerrainGenerator(int width, long seed, int octaves)
     {
         this.width = width;
-        generateTerrain();
+        this.seed = seed;
+        this.octaves = octaves;
+        n = new Noise(noiseSize, seed);
     }
     
     private void generateTerrain()
     {
-        //Create height map
-        heightMap = new float[width+1][width+1];
-        n = new Noise(noiseSize);
+        //Create height map, one sample per area unit, taken from the last field if it has a point on every unit
+        int step = field != null && fieldDensity >= 1 && fieldDensity == Math.rint(fieldDensity) ? (int)fieldDensity : 1;
+        HeightField source = step > 1 ? field : getHeightField(1);
         
+        heightMap = new float[width+1][width+1];
         for(int x = 0; x < heightMap.length; x++)
         {
             for(int y = 0; y < heightMap.length; y++)
             {
-                heightMap[x][y] = MULT * (float)n.noise(x / coordDivisor, y / coordDivisor);
-            }
-        }
-        
-        mesh = new TriangleMesh();
-        
-        ObservableIntegerArray faces = FXCollections.observableIntegerArray();
-        ObservableFloatArray pts = FXCollections.observableFloatArray();
-        
-        int vertNum = 0;
-        //Create triangle mesh
-        for(int y = 0; y < width; y++)
-        {
-            for(int x = 0; x < width; x++)
-            {
-                pts.addAll(x, y, heightMap[x][y]);          
-                faces.addAll(vertNum++, 0);
-                
-                pts.addAll(x, y+1, heightMap[x][y+1]);      
-                faces.addAll(vertNum++, 0);
-                
-                pts.addAll(x+1, y, heightMap[x+1][y]);      
-                faces.addAll(vertNum++, 0);
-                
-                pts.addAll(x+1, y, heightMap[x+1][y]);      
-                faces.addAll(vertNum++, 0);
-                
-                pts.addAll(x, y+1, heightMap[x][y+1]);      
-                faces.addAll(vertNum++, 0);
-                
-                pts.addAll(x+1, y+1, heightMap[x+1][y+1]); 
-                faces.addAll(vertNum++, 0);
+                heightMap[x][y] = (float)source.get(x * step, y * step);
             }
         }
-        
-        mesh.getPoints().addAll(pts);
-        mesh.getFaces().addAll(faces);
-        mesh.getTexCoords().addAll(0, 0);
     }
     
-    public ArrayList<Double[]> getGrid(double density)
+    //Heights of the terrain sampled at the given number of points per area unit, generated in parallel.
+    //The field is kept and returned again while the density stays the same, so it must not be modified.
+    public synchronized HeightField getHeightField(double density)
     {
-        ArrayList<Double[]> grid = new ArrayList<>();
-        for(double x = 0; x <= width; x += (1.0 / density))
+        if(field == null || density != fieldDensity)
         {
-            for(double y = 0; y <= width; y += (1.0 / density))
-            {
-                Double[] coords = new Double[3];
-                coords[0] = x;
-                coords[1] = y;
-                coords[2] = MULT * n.noise(coords[0] / coordDivisor, coords[1] / coordDivisor);
-                
-                grid.add(coords);
-            }
+            int points = (int)(width * density + 1e-9) + 1;   //Points along each side, including both edges
+            field = HeightField.generate(n, points, points, 1.0 / density, coordDivisor, MULT, octaves);
+            fieldDensity = density;
         }
-        
-        return grid;
+        return field;
+    }
+    
+    //Grid over the kept field's heights, copied so the grid's own edits do not reach the field
+    public Grid getGrid(double density)
+    {
+        HeightField field = getHeightField(density);
+        return new Grid(field.getColumns(), field.getRows(), field.getSpacing(), field.getHeights().clone());
     }
     
-    public TriangleMesh getMesh()
+    public long getSeed()
     {
-        return mesh;
+        return seed;
     }
     
-    public float[][] getHeightMap()
+    //Heights with one sample per area unit, generated the first time they are asked for
+    public synchronized float[][] getHeightMap()
     {
+        if(heightMap == null)
+        {
+            generateTerrain();
+        }
         return heightMap;
     }
 }
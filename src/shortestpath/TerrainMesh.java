@@ -0,0 +1,57 @@
+package shortestpath;
+
+import javafx.scene.shape.TriangleMesh;
+
+//Builds the JavaFX mesh for a height map. Kept apart from TerrainGenerator so terrain and grids
+//can be generated without JavaFX.
+public class TerrainMesh
+{
+    //Each height map sample is one vertex shared by every triangle around it, and faces index into them.
+    //Points and faces are written into plain arrays and handed to the mesh in one bulk call each.
+    public static TriangleMesh create(float[][] heightMap)
+    {
+        int width = heightMap.length - 1;
+        int side = width + 1;   //Vertices along each side
+        
+        float[] points = new float[side * side * 3];
+        int p = 0;
+        for(int x = 0; x < side; x++)
+        {
+            for(int y = 0; y < side; y++)
+            {
+                points[p++] = x;
+                points[p++] = y;
+                points[p++] = heightMap[x][y];
+            }
+        }
+        
+        //Two triangles per cell, as (point, texture coordinate) pairs with one shared texture coordinate
+        int[] faces = new int[width * width * 12];
+        int f = 0;
+        for(int y = 0; y < width; y++)
+        {
+            for(int x = 0; x < width; x++)
+            {
+                int v00 = x * side + y;             //(x, y)
+                int v01 = v00 + 1;                  //(x, y+1)
+                int v10 = v00 + side;               //(x+1, y)
+                int v11 = v10 + 1;                  //(x+1, y+1)
+                
+                faces[f++] = v00; faces[f++] = 0;
+                faces[f++] = v01; faces[f++] = 0;
+                faces[f++] = v10; faces[f++] = 0;
+                
+                faces[f++] = v10; faces[f++] = 0;
+                faces[f++] = v01; faces[f++] = 0;
+                faces[f++] = v11; faces[f++] = 0;
+            }
+        }
+        
+        TriangleMesh mesh = new TriangleMesh();
+        mesh.getPoints().setAll(points);
+        mesh.getFaces().setAll(faces);
+        mesh.getTexCoords().setAll(0, 0);
+        
+        return mesh;
+    }
+}
@@ -0,0 +1,312 @@
+package shortestpath;
+
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+
+//A* over a tiled terrain. Search state is sparse: every point the search touches gets a local index the
+//first time it is seen, so memory grows with the search rather than the world, and neighbours are expanded
+//across tile boundaries as if the terrain were one grid. Edge costs are straight line distances, the same
+//as EdgeCosts.compute gives for a Grid. Safe to use from several threads, as each query has its own state.
+public class TiledPathFinder
+{
+    private static final int CANCEL_CHECK_INTERVAL = 1024;  //Expansions between polls of the cancellation token
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final TiledTerrain terrain;
+    private final Neighbourhood neighbourhood;
+
+    private volatile MetricsSink metrics;
+
+    public TiledPathFinder(TiledTerrain terrain, Neighbourhood neighbourhood)
+    {
+        this.terrain = terrain;
+        this.neighbourhood = neighbourhood;
+    }
+
+    public TiledTerrain getTerrain()
+    {
+        return terrain;
+    }
+
+    public void setMetricsSink(MetricsSink metrics)
+    {
+        this.metrics = metrics;
+    }
+
+    public TiledPathResult find(long start, long end)
+    {
+        return find(start, end, CancellationToken.NONE);
+    }
+
+    //Points outside the world are never reached, and no tile is read for them.
+    //Throws CancellationException if the token fires while searching.
+    public TiledPathResult find(long start, long end, CancellationToken cancellation)
+    {
+        if(!terrain.contains(TiledTerrain.column(start), TiledTerrain.row(start))
+                || !terrain.contains(TiledTerrain.column(end), TiledTerrain.row(end)))
+        {
+            return new TiledPathResult(new long[0], Double.POSITIVE_INFINITY, new SearchStats(0, 0, 0, 0, 0, -1, -1));
+        }
+        return new Search(start, end, cancellation).run();
+    }
+
+    //One running query, with its own sparse state
+    private class Search
+    {
+        private final long startId;
+        private final long endId;
+        private final CancellationToken cancellation;
+
+        private final int endColumn;
+        private final int endRow;
+        private final double endHeight;
+
+        //State of each touched point, by local index
+        private final LongIndexMap locals = new LongIndexMap(INITIAL_CAPACITY);
+        private long[] ids = new long[INITIAL_CAPACITY];
+        private double[] heights = new double[INITIAL_CAPACITY];
+        private double[] g = new double[INITIAL_CAPACITY];
+        private int[] parents = new int[INITIAL_CAPACITY];
+        private boolean[] closed = new boolean[INITIAL_CAPACITY];
+        private final IndexedMinHeap open = new IndexedMinHeap(INITIAL_CAPACITY);
+        private int count;
+
+        //Last tile read, since most neighbours fall in the same tile as the point being expanded
+        private HeightField tile;
+        private int tileColumn = -1;
+        private int tileRow = -1;
+
+        private int expanded;
+        private int decreaseKeys;
+        private int peakOpen;
+
+        Search(long startId, long endId, CancellationToken cancellation)
+        {
+            this.startId = startId;
+            this.endId = endId;
+            this.cancellation = cancellation;
+            endColumn = TiledTerrain.column(endId);
+            endRow = TiledTerrain.row(endId);
+            endHeight = height(endColumn, endRow);
+        }
+
+        //Only wall time is measured, as tiles generated on the way are filled by other threads
+        TiledPathResult run()
+        {
+            long begin = System.nanoTime();
+            int end = findPath();
+            SearchStats stats = new SearchStats(expanded, count, decreaseKeys, peakOpen, System.nanoTime() - begin, -1, -1);
+            MetricsSink sink = metrics;
+            if(sink != null)
+            {
+                sink.record(stats);
+            }
+
+            if(end == -1)
+            {
+                return new TiledPathResult(new long[0], Double.POSITIVE_INFINITY, stats);
+            }
+
+            int length = 1;
+            for(int i = end; parents[i] != i; i = parents[i])
+            {
+                length++;
+            }
+            long[] path = new long[length];
+            int curr = end;
+            for(int i = length - 1; i >= 0; i--)
+            {
+                path[i] = ids[curr];
+                curr = parents[curr];
+            }
+            return new TiledPathResult(path, g[end], stats);
+        }
+
+        //Returns the local index of the end, or -1 if it cannot be reached
+        private int findPath()
+        {
+            int startColumn = TiledTerrain.column(startId);
+            int startRow = TiledTerrain.row(startId);
+            int start = touch(startId, startColumn, startRow);
+            g[start] = 0;
+            parents[start] = start;
+            open.add(start, estimate(start));
+
+            while(!open.isEmpty())
+            {
+                peakOpen = Math.max(peakOpen, open.size());
+                int curr = open.poll();
+                if(ids[curr] == endId)
+                {
+                    return curr;
+                }
+                closed[curr] = true;
+                if(++expanded % CANCEL_CHECK_INTERVAL == 0 && cancellation.isCancelled())
+                {
+                    throw new CancellationException("Search from " + startId + " to " + endId + " was cancelled");
+                }
+
+                int col = TiledTerrain.column(ids[curr]);
+                int row = TiledTerrain.row(ids[curr]);
+                for(int dir = 0; dir < neighbourhood.size(); dir++)
+                {
+                    int adjColumn = col + neighbourhood.columnOffset(dir);
+                    int adjRow = row + neighbourhood.rowOffset(dir);
+                    if(!terrain.contains(adjColumn, adjRow))
+                    {
+                        continue;
+                    }
+
+                    long adjId = TiledTerrain.id(adjColumn, adjRow);
+                    int adj = locals.get(adjId);
+                    boolean seen = adj != -1;
+                    if(seen && closed[adj])
+                    {
+                        continue;
+                    }
+                    if(!seen)
+                    {
+                        adj = touch(adjId, adjColumn, adjRow);
+                    }
+
+                    double dx = neighbourhood.columnOffset(dir) * terrain.getSpacing();
+                    double dy = neighbourhood.rowOffset(dir) * terrain.getSpacing();
+                    double dz = heights[adj] - heights[curr];
+                    double adjG = g[curr] + Math.sqrt(dx*dx + dy*dy + dz*dz);
+                    if(adjG >= g[adj])
+                    {
+                        continue;
+                    }
+
+                    g[adj] = adjG;
+                    parents[adj] = curr;
+                    if(open.contains(adj))
+                    {
+                        open.decreaseKey(adj, adjG + estimate(adj));
+                        decreaseKeys++;
+                    }
+                    else
+                    {
+                        open.add(adj, adjG + estimate(adj));
+                    }
+                }
+            }
+            return -1;
+        }
+
+        //Gives a newly seen point its local index, growing the state arrays if they are full
+        private int touch(long id, int column, int row)
+        {
+            if(count == ids.length)
+            {
+                int capacity = count * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                heights = Arrays.copyOf(heights, capacity);
+                g = Arrays.copyOf(g, capacity);
+                parents = Arrays.copyOf(parents, capacity);
+                closed = Arrays.copyOf(closed, capacity);
+                open.ensureCapacity(capacity);
+            }
+            int local = count++;
+            ids[local] = id;
+            heights[local] = height(column, row);
+            g[local] = Double.POSITIVE_INFINITY;
+            locals.put(id, local);
+            return local;
+        }
+
+        private double height(int column, int row)
+        {
+            int tc = column / terrain.getTileSize();
+            int tr = row / terrain.getTileSize();
+            if(tc != tileColumn || tr != tileRow)
+            {
+                tile = terrain.getTile(tc, tr);
+                tileColumn = tc;
+                tileRow = tr;
+            }
+            return tile.get(column - tc * terrain.getTileSize(), row - tr * terrain.getTileSize());
+        }
+
+        //Straight line distance to the end, never more than the cost of any path there
+        private double estimate(int local)
+        {
+            double dx = (TiledTerrain.column(ids[local]) - endColumn) * terrain.getSpacing();
+            double dy = (TiledTerrain.row(ids[local]) - endRow) * terrain.getSpacing();
+            double dz = heights[local] - endHeight;
+            return Math.sqrt(dx*dx + dy*dy + dz*dz);
+        }
+    }
+
+    //Open addressing map from point ids to local indices, without boxing
+    private static class LongIndexMap
+    {
+        private long[] keys;
+        private int[] values;   //Local index + 1, so 0 marks an empty slot
+        private int size;
+
+        LongIndexMap(int capacity)
+        {
+            keys = new long[Integer.highestOneBit(Math.max(2, capacity) - 1) * 4];
+            values = new int[keys.length];
+        }
+
+        //Returns -1 if the id has no local index
+        int get(long key)
+        {
+            int mask = keys.length - 1;
+            for(int slot = hash(key) & mask; values[slot] != 0; slot = (slot + 1) & mask)
+            {
+                if(keys[slot] == key)
+                {
+                    return values[slot] - 1;
+                }
+            }
+            return -1;
+        }
+
+        //Only called for ids not yet in the map
+        void put(long key, int value)
+        {
+            if(++size * 2 > keys.length)
+            {
+                grow();
+            }
+            int mask = keys.length - 1;
+            int slot = hash(key) & mask;
+            while(values[slot] != 0)
+            {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            values[slot] = value + 1;
+        }
+
+        private void grow()
+        {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new int[keys.length];
+            int mask = keys.length - 1;
+            for(int i = 0; i < oldKeys.length; i++)
+            {
+                if(oldValues[i] != 0)
+                {
+                    int slot = hash(oldKeys[i]) & mask;
+                    while(values[slot] != 0)
+                    {
+                        slot = (slot + 1) & mask;
+                    }
+                    keys[slot] = oldKeys[i];
+                    values[slot] = oldValues[i];
+                }
+            }
+        }
+
+        private static int hash(long key)
+        {
+            return (int)(key * 0x9E3779B97F4A7C15L >>> 32);   //High half of the product mixes in every bit of the key
+        }
+    }
+}
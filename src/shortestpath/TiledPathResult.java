@@ -0,0 +1,38 @@
+package shortestpath;
+
+//Outcome of a path query over a tiled terrain
+public class TiledPathResult
+{
+    private final long[] path;  //Point ids from the start to the end, empty if no path exists
+    private final double cost;
+    private final SearchStats stats;
+
+    public TiledPathResult(long[] path, double cost, SearchStats stats)
+    {
+        this.path = path;
+        this.cost = cost;
+        this.stats = stats;
+    }
+
+    public boolean isFound()
+    {
+        return path.length > 0;
+    }
+
+    //Ids as made by TiledTerrain.id(column, row)
+    public long[] getPath()
+    {
+        return path;
+    }
+
+    //Total edge cost of the path, infinite if no path exists
+    public double getCost()
+    {
+        return cost;
+    }
+
+    public SearchStats getStats()
+    {
+        return stats;
+    }
+}
@@ -0,0 +1,282 @@
+package shortestpath;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+//Terrain split into square tiles of points that are generated, or read from disk, the first time they are
+//touched, and kept in a bounded least recently used cache. Only the cached tiles are in memory, so the world
+//can be far larger than the heap. A point is identified by its world column and row, packed into a long id.
+//Safe to use from several threads. Each tile is loaded once, outside the lock, by the first thread to ask for
+//it, and any others asking meanwhile wait for that tile alone.
+//
+//A tile directory holds a manifest of everything the heights depend on, and is only used by terrains that
+//match it, so tiles saved for one terrain are never read back as another's.
+public class TiledTerrain
+{
+    private static final String MANIFEST = "tiles.manifest";
+    private static final int MANIFEST_MAGIC = 0x5350544D;  //"SPTM"
+    private static final int MANIFEST_VERSION = 1;
+
+    private final int columns;          //Points along x in the whole world
+    private final int rows;             //Points along y in the whole world
+    private final int tileSize;         //Points along each side of a tile
+    private final double spacing;
+    private final int maxTiles;
+
+    private final long seed;
+    private final int lattice;          //Noise lattice size
+    private final Noise noise;
+    private final int octaves;
+
+    private final LinkedHashMap<Long, CompletableFuture<HeightField>> tiles;   //Loaded or loading
+    private volatile File tileDirectory;    //Where tiles are saved and read back, null keeps them in memory only
+    private long tileLoads;             //Tiles generated or read since the terrain was created
+
+    //A world of the given size in area units, sampled at density points per unit like TerrainGenerator's grids
+    public TiledTerrain(long seed, int width, double density, int octaves, int tileSize, int maxTiles)
+    {
+        this.columns = (int)(width * density + 1e-9) + 1;
+        this.rows = columns;
+        this.tileSize = tileSize;
+        this.spacing = 1.0 / density;
+        this.maxTiles = maxTiles;
+
+        //A lattice large enough that the noise does not visibly repeat across a big world
+        this.seed = seed;
+        lattice = Math.max(TerrainGenerator.noiseSize, (int)Math.min(1 << 16, (long)(width / TerrainGenerator.coordDivisor) + 2));
+        noise = new Noise(lattice, seed);
+        this.octaves = octaves;
+
+        tiles = new LinkedHashMap<Long, CompletableFuture<HeightField>>(16, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, CompletableFuture<HeightField>> eldest)
+            {
+                return size() > TiledTerrain.this.maxTiles;
+            }
+        };
+    }
+
+    public static long id(int column, int row)
+    {
+        return (long)column << 32 | (row & 0xFFFFFFFFL);
+    }
+
+    public static int column(long id)
+    {
+        return (int)(id >> 32);
+    }
+
+    public static int row(long id)
+    {
+        return (int)id;
+    }
+
+    public int getColumns()
+    {
+        return columns;
+    }
+
+    public int getRows()
+    {
+        return rows;
+    }
+
+    public int getTileSize()
+    {
+        return tileSize;
+    }
+
+    public double getSpacing()
+    {
+        return spacing;
+    }
+
+    public boolean contains(int column, int row)
+    {
+        return column >= 0 && column < columns && row >= 0 && row < rows;
+    }
+
+    //Tiles are saved here when first generated, and read back instead of generated if already there. The
+    //directory's manifest is written if it has none, and it is rejected if its manifest or any tiles in it
+    //were made for a different terrain.
+    public void setTileDirectory(File tileDirectory) throws IOException
+    {
+        if(tileDirectory != null)
+        {
+            checkManifest(tileDirectory);
+        }
+        this.tileDirectory = tileDirectory;
+    }
+
+    public synchronized int getCachedTiles()
+    {
+        return tiles.size();
+    }
+
+    public synchronized long getTileLoads()
+    {
+        return tileLoads;
+    }
+
+    public double getX(int column)
+    {
+        return column * spacing;
+    }
+
+    public double getY(int row)
+    {
+        return row * spacing;
+    }
+
+    public double getHeight(int column, int row)
+    {
+        HeightField tile = getTile(column / tileSize, row / tileSize);
+        return tile.get(column % tileSize, row % tileSize);
+    }
+
+    //Straight line distance between two points
+    public double distance(long a, long b)
+    {
+        int colA = column(a);
+        int rowA = row(a);
+        int colB = column(b);
+        int rowB = row(b);
+        double dx = (colA - colB) * spacing;
+        double dy = (rowA - rowB) * spacing;
+        double dz = getHeight(colA, rowA) - getHeight(colB, rowB);
+        return Math.sqrt(dx*dx + dy*dy + dz*dz);
+    }
+
+    //The tile holding columns tileColumn * tileSize onwards and rows tileRow * tileSize onwards, loading it if
+    //it is not cached. Tiles at the far edges of the world are full size, with points past the edge unused.
+    public HeightField getTile(int tileColumn, int tileRow)
+    {
+        long key = id(tileColumn, tileRow);
+        CompletableFuture<HeightField> tile;
+        boolean load = false;
+        synchronized(this)
+        {
+            tile = tiles.get(key);
+            if(tile == null)
+            {
+                tile = new CompletableFuture<>();
+                tiles.put(key, tile);
+                tileLoads++;
+                load = true;
+            }
+        }
+
+        if(load)
+        {
+            try
+            {
+                tile.complete(loadTile(tileColumn, tileRow));
+            }
+            catch(RuntimeException e)
+            {
+                //Let a later call try again, and fail this one and those already waiting
+                synchronized(this)
+                {
+                    tiles.remove(key, tile);
+                }
+                tile.completeExceptionally(e);
+                throw e;
+            }
+        }
+
+        try
+        {
+            return tile.join();
+        }
+        catch(CompletionException e)
+        {
+            throw (RuntimeException)e.getCause();
+        }
+    }
+
+    private HeightField loadTile(int tileColumn, int tileRow)
+    {
+        File directory = tileDirectory;
+        File file = directory == null ? null : new File(directory, "tile_" + tileColumn + "_" + tileRow + ".bin");
+        try
+        {
+            if(file != null && file.exists())
+            {
+                Grid grid = TerrainFile.read(file).getGrid();
+                if(grid.getWidth() != tileSize || grid.getHeight() != tileSize || grid.getSpacing() != spacing)
+                {
+                    throw new IOException("Tile does not match the terrain: " + file);
+                }
+                return new HeightField(tileSize, tileSize, spacing, grid.getHeights());
+            }
+
+            HeightField tile = HeightField.generate(noise, tileColumn * tileSize, tileRow * tileSize, tileSize, tileSize,
+                                                    spacing, TerrainGenerator.coordDivisor, TerrainGenerator.MULT, octaves);
+            if(file != null)
+            {
+                TerrainFile.write(file, new Grid(tileSize, tileSize, spacing, tile.getHeights()), null, null);
+            }
+            return tile;
+        }
+        catch(IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    //Reads the directory's manifest and compares it with this terrain, or writes one if there is none.
+    //A directory with tiles but no manifest cannot be checked, so it is rejected.
+    private void checkManifest(File directory) throws IOException
+    {
+        File file = new File(directory, MANIFEST);
+        if(!file.exists())
+        {
+            String[] existing = directory.list((dir, name) -> name.startsWith("tile_"));
+            if(existing != null && existing.length > 0)
+            {
+                throw new IOException("Tile directory has tiles but no manifest: " + directory);
+            }
+            directory.mkdirs();
+            try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file))))
+            {
+                out.writeInt(MANIFEST_MAGIC);
+                out.writeInt(MANIFEST_VERSION);
+                out.writeLong(seed);
+                out.writeInt(columns);
+                out.writeInt(tileSize);
+                out.writeDouble(spacing);
+                out.writeInt(octaves);
+                out.writeInt(lattice);
+                out.writeDouble(TerrainGenerator.coordDivisor);
+                out.writeDouble(TerrainGenerator.MULT);
+            }
+            return;
+        }
+
+        try(DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file))))
+        {
+            if(in.readInt() != MANIFEST_MAGIC || in.readInt() != MANIFEST_VERSION)
+            {
+                throw new IOException("Not a tile manifest, or an unsupported version: " + file);
+            }
+            if(in.readLong() != seed || in.readInt() != columns || in.readInt() != tileSize || in.readDouble() != spacing
+                    || in.readInt() != octaves || in.readInt() != lattice || in.readDouble() != TerrainGenerator.coordDivisor
+                    || in.readDouble() != TerrainGenerator.MULT)
+            {
+                throw new IOException("Tile directory holds tiles of a different terrain: " + directory);
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package shortestpath;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class AnyAnglePathFinderTest
+{
+    //Doubling every point's multiplier doubles every line, and lines touching a no-go point are impassable
+    @Test
+    public void linesAreCostedThroughTheModel()
+    {
+        Grid grid = new TerrainGenerator(30, 42).getGrid(2);
+        AnyAnglePathFinder distance = new AnyAnglePathFinder(grid, Neighbourhood.EIGHT);
+        TerrainCostModel model = new TerrainCostModel(grid);
+        int[] all = new int[grid.size()];
+        Arrays.setAll(all, i -> i);
+        float[] doubled = new float[grid.size()];
+        Arrays.fill(doubled, 2);
+        model.setMultipliers(all, doubled);
+        AnyAnglePathFinder vehicle = new AnyAnglePathFinder(grid, Neighbourhood.EIGHT, model);
+
+        Random random = new Random(42);
+        for(int i = 0; i < 200; i++)
+        {
+            int a = random.nextInt(grid.size());
+            int b = random.nextInt(grid.size());
+            PathAssertions.assertCost(2 * distance.lineCost(a, b), vehicle.lineCost(a, b), "Line from " + a + " to " + b);
+        }
+
+        int blocked = grid.index(grid.getWidth() / 2, grid.getHeight() / 2);
+        model = new TerrainCostModel(grid);
+        model.setMultipliers(all, doubled);
+        model.setMultipliers(new int[]{blocked}, new float[]{Float.POSITIVE_INFINITY});
+        vehicle = new AnyAnglePathFinder(grid, Neighbourhood.EIGHT, model);
+        int left = grid.index(grid.getWidth() / 2 - 5, grid.getHeight() / 2);
+        int right = grid.index(grid.getWidth() / 2 + 5, grid.getHeight() / 2);
+        assertEquals(Double.POSITIVE_INFINITY, vehicle.lineCost(left, right));
+
+        PathResult result = vehicle.find(new PathQuery(left, right));
+        assertTrue(result.isFound());
+        assertTrue(result.getCost() > 2 * distance.lineCost(left, right));
+        PathAssertions.assertCost(vehicle.pathCost(result.getPath()), result.getCost(), "Path around the no-go point");
+    }
+}
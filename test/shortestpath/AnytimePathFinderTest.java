@@ -0,0 +1,76 @@
+package shortestpath;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class AnytimePathFinderTest
+{
+    private static final double EPSILON = 1e-9;
+
+    @Test
+    public void weightedPathsStayWithinWeight()
+    {
+        Grid grid = new TerrainGenerator(30, 42).getGrid(2);
+        PathFinder finder = new PathFinder(EdgeCosts.compute(grid, Neighbourhood.EIGHT));
+        Random random = new Random(42);
+        for(double weight : new double[]{1.5, 2, 3})
+        {
+            for(int i = 0; i < 40; i++)
+            {
+                int start = random.nextInt(grid.size());
+                int end = random.nextInt(grid.size());
+                double shortest = finder.find(new PathQuery(start, end)).getCost();
+                PathQuery query = new PathQuery(start, end, grid::distance);
+                query.setWeight(weight);
+                double cost = finder.find(query).getCost();
+                assertTrue(cost <= shortest * weight * (1 + EPSILON),
+                           "Weight " + weight + " from " + start + " to " + end + " cost " + cost + ", shortest " + shortest);
+            }
+        }
+    }
+
+    //Each pass may only tighten the bound, each path must be within its bound, and the last must be a shortest one
+    @Test
+    public void passesTightenToShortest()
+    {
+        Grid grid = new TerrainGenerator(30, 42).getGrid(2);
+        EdgeCosts costs = EdgeCosts.compute(grid, Neighbourhood.EIGHT);
+        PathFinder finder = new PathFinder(costs);
+        AnytimePathFinder anytime = new AnytimePathFinder(costs);
+        Random random = new Random(42);
+        for(int i = 0; i < 20; i++)
+        {
+            int start = random.nextInt(grid.size());
+            int end = random.nextInt(grid.size());
+            double shortest = finder.find(new PathQuery(start, end)).getCost();
+            PathQuery query = new PathQuery(start, end, grid::distance);
+            query.setWeight(3);
+            List<double[]> passes = new ArrayList<>();
+            PathResult result = anytime.find(query, System.nanoTime() + Long.MAX_VALUE,
+                                             (pass, bound) -> passes.add(new double[]{pass.getCost(), bound}));
+
+            PathAssertions.assertCost(shortest, result.getCost(), "Query from " + start + " to " + end);
+            if(shortest == Double.POSITIVE_INFINITY)
+            {
+                continue;
+            }
+            assertFalse(passes.isEmpty());
+            double lastBound = Double.POSITIVE_INFINITY;
+            for(double[] pass : passes)
+            {
+                assertTrue(pass[1] <= lastBound, "Bound rose to " + pass[1] + " from " + lastBound);
+                assertTrue(pass[0] <= pass[1] * shortest * (1 + EPSILON),
+                           "Cost " + pass[0] + " over bound " + pass[1] + " times shortest " + shortest);
+                lastBound = pass[1];
+            }
+            assertEquals(1, lastBound, EPSILON);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package shortestpath;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class HierarchicalPathFinderTest
+{
+    //Compares hierarchical paths with shortest ones under costs with steep slopes and scattered points blocked.
+    //Both must agree on whether there is a path, and hierarchical costs may only be higher.
+    @Test
+    public void agreesWithShortestOnReachability()
+    {
+        for(long seed : new long[]{42, 7, 1234})
+        {
+            Grid grid = new TerrainGenerator(30, seed).getGrid(2);
+            EdgeCosts costs = EdgeCosts.compute(grid, Neighbourhood.EIGHT, blockedModel(grid, seed));
+            PathFinder finder = new PathFinder(costs);
+            HierarchicalPathFinder hierarchical = new HierarchicalPathFinder(costs, 10);
+            Random random = new Random(seed);
+            for(int i = 0; i < 400; i++)
+            {
+                int start = random.nextInt(grid.size());
+                int end = random.nextInt(grid.size());
+                double shortest = finder.find(new PathQuery(start, end)).getCost();
+                double cost = hierarchical.findPath(start, end).getCost();
+                String query = "Seed " + seed + " from " + start + " to " + end;
+                assertEquals(shortest == Double.POSITIVE_INFINITY, cost == Double.POSITIVE_INFINITY, query);
+                assertTrue(cost >= shortest * (1 - 1e-9), query + " cost " + cost + ", shortest " + shortest);
+            }
+        }
+    }
+
+    //On flat ground a shortest path between neighbouring clusters stays within the two, so it must be found
+    @Test
+    public void neighbouringClustersGiveShortest()
+    {
+        Grid grid = new Grid(64, 64, 1);
+        EdgeCosts costs = EdgeCosts.compute(grid, Neighbourhood.EIGHT);
+        PathFinder finder = new PathFinder(costs);
+        HierarchicalPathFinder hierarchical = new HierarchicalPathFinder(costs, 16);
+        Random random = new Random(42);
+        for(int i = 0; i < 400; i++)
+        {
+            int start = random.nextInt(grid.size());
+            int col = Math.max(0, Math.min(grid.getWidth() - 1, grid.column(start) + random.nextInt(33) - 16));
+            int row = Math.max(0, Math.min(grid.getHeight() - 1, grid.row(start) + random.nextInt(33) - 16));
+            int end = grid.index(col, row);
+            HierarchicalPathFinder.HierarchicalPath path = hierarchical.findPath(start, end);
+            double shortest = finder.find(new PathQuery(start, end)).getCost();
+            PathAssertions.assertCost(shortest, path.getCost(), "From " + start + " to " + end);
+            PathAssertions.assertPath(costs, path.toArray(), start, end, path.getCost());
+        }
+    }
+
+    private static TerrainCostModel blockedModel(Grid grid, long seed)
+    {
+        TerrainCostModel model = new TerrainCostModel(grid);
+        model.setMaxSlope(1);
+        Random random = new Random(seed);
+        int[] blocked = new int[grid.size() / 20];
+        float[] infinite = new float[blocked.length];
+        for(int i = 0; i < blocked.length; i++)
+        {
+            blocked[i] = random.nextInt(grid.size());
+            infinite[i] = Float.POSITIVE_INFINITY;
+        }
+        model.setMultipliers(blocked, infinite);
+        return model;
+    }
+}
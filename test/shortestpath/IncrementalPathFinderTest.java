@@ -0,0 +1,116 @@
+package shortestpath;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+//Replans after each random edit, start move or goal change must cost the same as a full search over the same costs
+public class IncrementalPathFinderTest
+{
+    private static final float[] MULTIPLIERS = {1, 2, 4, Float.POSITIVE_INFINITY};
+
+    @Test
+    public void replansMatchFullSearches()
+    {
+        Grid grid = new TerrainGenerator(30, 42).getGrid(2);
+        IncrementalPathFinder finder = new IncrementalPathFinder(EdgeCosts.compute(grid, Neighbourhood.EIGHT));
+        Random random = new Random(42);
+        int start = random.nextInt(grid.size());
+        int goal = random.nextInt(grid.size());
+        int replans = 0;
+        for(int i = 0; i < 300; i++)
+        {
+            switch(random.nextInt(4))
+            {
+                case 0:
+                    start = random.nextInt(grid.size());
+                    break;
+                case 1:
+                    goal = random.nextInt(grid.size());
+                    break;
+                case 2:
+                    editMultipliers(finder, grid, random);
+                    break;
+                default:
+                    editHeights(finder, finder.getGrid(), random);
+                    break;
+            }
+
+            PathResult result = finder.find(start, goal);
+            PathResult full = new PathFinder(finder.getEdgeCosts()).find(new PathQuery(start, goal));
+            PathAssertions.assertCost(full.getCost(), result.getCost(), "Edit " + i + " from " + start + " to " + goal);
+            if(result.isFound())
+            {
+                PathAssertions.assertPath(finder.getEdgeCosts(), result.getPath(), start, goal, result.getCost());
+                replans++;
+            }
+        }
+        assertTrue(replans > 0);
+    }
+
+    //Edges around changed heights must be recomputed through the cost model, as if compiled afresh, and the
+    //heights changed only in the finder's own grid
+    @Test
+    public void heightEditsKeepCostModel()
+    {
+        Grid grid = new TerrainGenerator(30, 42).getGrid(2);
+        TerrainCostModel model = new TerrainCostModel(grid);
+        model.setMaxSlope(1);
+        model.setUphillPenalty(2);
+        IncrementalPathFinder finder = new IncrementalPathFinder(EdgeCosts.compute(grid, Neighbourhood.EIGHT, model), model);
+        double[] heights = grid.getHeights().clone();
+        Random random = new Random(42);
+        for(int i = 0; i < 20; i++)
+        {
+            editHeights(finder, finder.getGrid(), random);
+        }
+        float[] expected = EdgeCosts.compute(finder.getGrid(), Neighbourhood.EIGHT, model).getCosts();
+        assertArrayEquals(expected, finder.getEdgeCosts().getCosts());
+        assertArrayEquals(heights, grid.getHeights());
+    }
+
+    //Sets the multipliers of a 3x3 patch, sometimes blocking it
+    private static void editMultipliers(IncrementalPathFinder finder, Grid grid, Random random)
+    {
+        int[] patch = patch(grid, random);
+        float[] values = new float[patch.length];
+        float value = MULTIPLIERS[random.nextInt(MULTIPLIERS.length)];
+        for(int i = 0; i < values.length; i++)
+        {
+            values[i] = value;
+        }
+        finder.setMultipliers(patch, values);
+    }
+
+    //Raises or lowers a 3x3 patch
+    private static void editHeights(IncrementalPathFinder finder, Grid grid, Random random)
+    {
+        int[] patch = patch(grid, random);
+        double[] heights = new double[patch.length];
+        double change = random.nextDouble() * 4 - 2;
+        for(int i = 0; i < patch.length; i++)
+        {
+            heights[i] = grid.getZ(patch[i]) + change;
+        }
+        finder.setHeights(patch, heights);
+    }
+
+    private static int[] patch(Grid grid, Random random)
+    {
+        int col = 1 + random.nextInt(grid.getWidth() - 2);
+        int row = 1 + random.nextInt(grid.getHeight() - 2);
+        int[] patch = new int[9];
+        int k = 0;
+        for(int dc = -1; dc <= 1; dc++)
+        {
+            for(int dr = -1; dr <= 1; dr++)
+            {
+                patch[k++] = grid.index(col + dc, row + dr);
+            }
+        }
+        return patch;
+    }
+}
@@ -0,0 +1,53 @@
+package shortestpath;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class IndexedMinHeapTest
+{
+    //Rekeying everything in place, adding more, then heapifying once must poll in the same order as fresh adds
+    @Test
+    public void heapifyAfterSetMatchesAdds()
+    {
+        Random random = new Random(42);
+        IndexedMinHeap heap = new IndexedMinHeap(500);
+        IndexedMinHeap fresh = new IndexedMinHeap(500);
+        for(int id = 0; id < 300; id++)
+        {
+            heap.add(id, random.nextDouble());
+        }
+        for(int i = 0; i < 100; i++)
+        {
+            heap.poll();
+        }
+
+        double[] keys = new double[500];
+        for(int pos = 0; pos < heap.size(); pos++)
+        {
+            int id = heap.get(pos);
+            keys[id] = random.nextInt(50);  //Repeated keys, so the ties are checked too
+            heap.set(id, keys[id], id);
+            fresh.add(id, keys[id], id);
+        }
+        for(int id = 300; id < 500; id++)
+        {
+            keys[id] = random.nextInt(50);
+            heap.set(id, keys[id], id);
+            fresh.add(id, keys[id], id);
+        }
+        heap.heapify();
+
+        assertEquals(fresh.size(), heap.size());
+        while(!fresh.isEmpty())
+        {
+            int id = heap.poll();
+            assertEquals(fresh.poll(), id);
+            assertTrue(!heap.contains(id));
+        }
+        assertTrue(heap.isEmpty());
+    }
+}
@@ -0,0 +1,101 @@
+package shortestpath;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+
+import org.junit.jupiter.api.Test;
+
+//Delta-stepping settles on the same least costs as a sequential search, so costs must match exactly
+public class ParallelPathFinderTest
+{
+    @Test
+    public void distanceCostsMatchSequential()
+    {
+        Grid grid = new TerrainGenerator(30, 42).getGrid(2);
+        check(EdgeCosts.compute(grid, Neighbourhood.EIGHT));
+    }
+
+    @Test
+    public void vehicleCostsMatchSequential()
+    {
+        Grid grid = new TerrainGenerator(30, 42).getGrid(2);
+        TerrainCostModel model = new TerrainCostModel(grid);
+        model.setMaxSlope(1);
+        model.setUphillPenalty(2);
+        Random random = new Random(42);
+        int[] blocked = new int[grid.size() / 20];
+        float[] infinite = new float[blocked.length];
+        for(int i = 0; i < blocked.length; i++)
+        {
+            blocked[i] = random.nextInt(grid.size());
+            infinite[i] = Float.POSITIVE_INFINITY;
+        }
+        model.setMultipliers(blocked, infinite);
+        check(EdgeCosts.compute(grid, Neighbourhood.EIGHT, model));
+    }
+
+    //Arrays are shared between queries, so a cancelled query must leave nothing behind for the next
+    @Test
+    public void cancelledQueryLeavesNoState()
+    {
+        Grid grid = new TerrainGenerator(30, 42).getGrid(2);
+        EdgeCosts costs = EdgeCosts.compute(grid, Neighbourhood.EIGHT);
+        PathFinder sequential = new PathFinder(costs);
+        ParallelPathFinder parallel = new ParallelPathFinder(costs, 4);
+        try
+        {
+            int[] polls = {0};
+            PathQuery cancelled = new PathQuery(0, grid.size() - 1);
+            cancelled.setCancellationToken(() -> ++polls[0] > 20);
+            assertThrows(CancellationException.class, () -> parallel.find(cancelled));
+
+            Random random = new Random(42);
+            for(int i = 0; i < 20; i++)
+            {
+                int start = random.nextInt(grid.size());
+                int end = random.nextInt(grid.size());
+                assertEquals(sequential.find(new PathQuery(start, end)).getCost(), parallel.find(new PathQuery(start, end)).getCost());
+            }
+        }
+        finally
+        {
+            parallel.shutdown();
+        }
+    }
+
+    //Runs 100 queries at each of four deltas: the default, below a step, a few steps and far beyond any edge
+    private static void check(EdgeCosts costs)
+    {
+        Grid grid = costs.getGrid();
+        PathFinder sequential = new PathFinder(costs);
+        ParallelPathFinder parallel = new ParallelPathFinder(costs, 4);
+        try
+        {
+            double spacing = grid.getSpacing();
+            for(double delta : new double[]{parallel.getDelta(), spacing / 2, spacing * 3, spacing * 1000})
+            {
+                parallel.setDelta(delta);
+                Random random = new Random(42);
+                for(int i = 0; i < 100; i++)
+                {
+                    int start = random.nextInt(grid.size());
+                    int end = random.nextInt(grid.size());
+                    double expected = sequential.find(new PathQuery(start, end)).getCost();
+                    PathResult result = parallel.find(new PathQuery(start, end));
+                    assertEquals(expected, result.getCost(), "Delta " + delta + " from " + start + " to " + end);
+                    if(result.isFound())
+                    {
+                        PathAssertions.assertPath(costs, result.getPath(), start, end, result.getCost());
+                    }
+                }
+            }
+        }
+        finally
+        {
+            parallel.shutdown();
+        }
+    }
+}
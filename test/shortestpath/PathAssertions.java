@@ -0,0 +1,49 @@
+package shortestpath;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+//Checks shared by the search tests
+final class PathAssertions
+{
+    private PathAssertions()
+    {
+    }
+
+    //Costs reached along different routes or in a different order may differ in their last bits
+    static void assertCost(double expected, double actual, String message)
+    {
+        assertEquals(expected, actual, 1e-9 * Math.max(1, expected), message);
+    }
+
+    //Checks the path runs from start to end along passable edges whose costs add up to the given cost
+    static void assertPath(EdgeCosts costs, int[] path, int start, int end, double cost)
+    {
+        assertTrue(path.length > 0, "Empty path from " + start + " to " + end);
+        assertEquals(start, path[0]);
+        assertEquals(end, path[path.length - 1]);
+
+        double sum = 0;
+        for(int i = 1; i < path.length; i++)
+        {
+            int dir = direction(costs, path[i - 1], path[i]);
+            assertNotEquals(-1, dir, "No edge from " + path[i - 1] + " to " + path[i]);
+            sum += costs.getCost(path[i - 1], dir);
+        }
+        assertCost(cost, sum, "Path from " + start + " to " + end);
+    }
+
+    //Direction of a passable edge from one point to another, or -1 if there is none
+    private static int direction(EdgeCosts costs, int from, int to)
+    {
+        for(int dir = 0; dir < costs.directions(); dir++)
+        {
+            if(costs.getCost(from, dir) != Float.POSITIVE_INFINITY && costs.getNeighbour(from, dir) == to)
+            {
+                return dir;
+            }
+        }
+        return -1;
+    }
+}
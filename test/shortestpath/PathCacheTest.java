@@ -0,0 +1,59 @@
+package shortestpath;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class PathCacheTest
+{
+    //Repeated goals are answered from stored results and trees, which must match fresh searches
+    @Test
+    public void cachedResultsMatchFreshSearches()
+    {
+        Grid grid = new TerrainGenerator(30, 42).getGrid(2);
+        EdgeCosts costs = EdgeCosts.compute(grid, Neighbourhood.EIGHT);
+        PathFinder finder = new PathFinder(costs);
+        PathCache cache = new PathCache(finder, 64, 4);
+        Random random = new Random(42);
+        int[] goals = {random.nextInt(grid.size()), random.nextInt(grid.size()), random.nextInt(grid.size())};
+        int[] starts = new int[40];
+        for(int i = 0; i < starts.length; i++)
+        {
+            starts[i] = random.nextInt(grid.size());
+        }
+
+        for(int i = 0; i < 300; i++)
+        {
+            int start = starts[random.nextInt(starts.length)];
+            int goal = goals[i % goals.length];
+            PathResult cached = cache.find(new PathQuery(start, goal));
+            PathResult fresh = finder.find(new PathQuery(start, goal));
+            PathAssertions.assertCost(fresh.getCost(), cached.getCost(), "Query from " + start + " to " + goal);
+            if(cached.isFound())
+            {
+                PathAssertions.assertPath(costs, cached.getPath(), start, goal, cached.getCost());
+            }
+        }
+        assertTrue(cache.getHits() > 0);
+        assertTrue(cache.getTreeHits() > 0);
+    }
+
+    @Test
+    public void changedHeightForcesMiss()
+    {
+        Grid grid = new TerrainGenerator(30, 42).getGrid(2);
+        PathCache cache = new PathCache(new PathFinder(EdgeCosts.compute(grid, Neighbourhood.EIGHT)), 64, 4);
+        int end = grid.size() - 1;
+        cache.find(new PathQuery(0, end));
+        long misses = cache.getMisses();
+        cache.find(new PathQuery(0, end));
+        assertEquals(misses, cache.getMisses());
+
+        grid.setZ(end / 2, grid.getZ(end / 2) + 1);
+        cache.find(new PathQuery(0, end));
+        assertEquals(misses + 1, cache.getMisses());
+    }
+}
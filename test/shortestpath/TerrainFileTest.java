@@ -0,0 +1,53 @@
+package shortestpath;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class TerrainFileTest
+{
+    @TempDir
+    File directory;
+
+    @Test
+    public void tablesReadBack() throws IOException
+    {
+        Grid grid = new TerrainGenerator(30, 42).getGrid(2);
+        EdgeCosts costs = EdgeCosts.compute(grid, Neighbourhood.EIGHT);
+        Landmarks landmarks = Landmarks.select(costs, 4);
+        File file = new File(directory, "terrain.bin");
+        TerrainFile.write(file, grid, costs, landmarks);
+
+        TerrainFile read = TerrainFile.read(file);
+        assertEquals(grid.getWidth(), read.getGrid().getWidth());
+        assertEquals(grid.getHeight(), read.getGrid().getHeight());
+        assertEquals(grid.getSpacing(), read.getGrid().getSpacing());
+        assertArrayEquals(grid.getHeights(), read.getGrid().getHeights());
+        assertEquals(Neighbourhood.EIGHT, read.getEdgeCosts().getNeighbourhood());
+        assertArrayEquals(costs.getCosts(), read.getEdgeCosts().getCosts());
+        assertArrayEquals(landmarks.getNodes(), read.getLandmarks().getNodes());
+        for(int k = 0; k < landmarks.getNodes().length; k++)
+        {
+            assertArrayEquals(landmarks.getDistances()[k], read.getLandmarks().getDistances()[k]);
+        }
+    }
+
+    @Test
+    public void tablesAreOptional() throws IOException
+    {
+        Grid grid = new TerrainGenerator(30, 42).getGrid(2);
+        File file = new File(directory, "terrain.bin");
+        TerrainFile.write(file, grid, null, null);
+
+        TerrainFile read = TerrainFile.read(file);
+        assertArrayEquals(grid.getHeights(), read.getGrid().getHeights());
+        assertNull(read.getEdgeCosts());
+        assertNull(read.getLandmarks());
+    }
+}
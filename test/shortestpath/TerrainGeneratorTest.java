@@ -0,0 +1,45 @@
+package shortestpath;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.Test;
+
+public class TerrainGeneratorTest
+{
+    //Grids and the height map come from one kept field, and each grid owns a copy of its heights
+    @Test
+    public void gridsShareOneField()
+    {
+        TerrainGenerator generator = new TerrainGenerator(30, 42);
+        HeightField field = generator.getHeightField(2);
+        Grid first = generator.getGrid(2);
+        Grid second = generator.getGrid(2);
+        assertSame(field, generator.getHeightField(2));
+        assertArrayEquals(field.getHeights(), first.getHeights());
+        assertNotSame(first.getHeights(), second.getHeights());
+
+        first.setZ(0, first.getZ(0) + 1);
+        assertEquals(field.get(0, 0), second.getZ(0));
+    }
+
+    //The height map read from a denser field matches one generated at a point per unit, to within rounding
+    @Test
+    public void heightMapMatchesUnitField()
+    {
+        TerrainGenerator generator = new TerrainGenerator(30, 42);
+        generator.getGrid(3);
+        float[][] heightMap = generator.getHeightMap();
+        HeightField unit = new TerrainGenerator(30, 42).getHeightField(1);
+        assertEquals(31, heightMap.length);
+        for(int x = 0; x < heightMap.length; x++)
+        {
+            for(int y = 0; y < heightMap[x].length; y++)
+            {
+                assertEquals(unit.get(x, y), heightMap[x][y], 1e-4);
+            }
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package shortestpath;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class TiledTerrainTest
+{
+    @TempDir
+    File directory;
+
+    @Test
+    public void savedTilesReadBack() throws IOException
+    {
+        TiledTerrain first = new TiledTerrain(42, 200, 2, 1, 64, 4);
+        first.setTileDirectory(directory);
+        double[] heights = first.getTile(1, 2).getHeights();
+
+        TiledTerrain second = new TiledTerrain(42, 200, 2, 1, 64, 4);
+        second.setTileDirectory(directory);
+        assertArrayEquals(heights, second.getTile(1, 2).getHeights());
+    }
+
+    //Tiles of another seed, octave count, density or tile size must not be read back as this terrain's
+    @Test
+    public void differentTerrainRejected() throws IOException
+    {
+        new TiledTerrain(42, 200, 2, 1, 64, 4).setTileDirectory(directory);
+        assertThrows(IOException.class, () -> new TiledTerrain(43, 200, 2, 1, 64, 4).setTileDirectory(directory));
+        assertThrows(IOException.class, () -> new TiledTerrain(42, 200, 2, 3, 64, 4).setTileDirectory(directory));
+        assertThrows(IOException.class, () -> new TiledTerrain(42, 200, 4, 1, 64, 4).setTileDirectory(directory));
+        assertThrows(IOException.class, () -> new TiledTerrain(42, 200, 2, 1, 32, 4).setTileDirectory(directory));
+    }
+
+    @Test
+    public void tilesWithoutManifestRejected() throws IOException
+    {
+        TerrainFile.write(new File(directory, "tile_0_0.bin"), new Grid(64, 64, 0.5), null, null);
+        assertThrows(IOException.class, () -> new TiledTerrain(42, 200, 2, 1, 64, 4).setTileDirectory(directory));
+    }
+
+    //Threads asking for the same tiles at once must share one load of each
+    @Test
+    public void concurrentRequestsLoadOnce() throws Exception
+    {
+        TiledTerrain terrain = new TiledTerrain(42, 200, 2, 1, 64, 16);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try
+        {
+            List<Future<HeightField>> tiles = new ArrayList<>();
+            for(int i = 0; i < 64; i++)
+            {
+                int tile = i % 4;
+                tiles.add(pool.submit(() -> terrain.getTile(tile, tile)));
+            }
+            for(int i = 0; i < tiles.size(); i++)
+            {
+                assertEquals(tiles.get(i % 4).get(), tiles.get(i).get());
+            }
+        }
+        finally
+        {
+            pool.shutdown();
+            pool.awaitTermination(10, TimeUnit.SECONDS);
+        }
+        assertEquals(4, terrain.getTileLoads());
+    }
+}